@@ -13,6 +13,8 @@ import {ChatService} from '../../services/services/chat.service';
 import {PickerComponent} from '@ctrl/ngx-emoji-mart';
 import {EmojiData} from '@ctrl/ngx-emoji-mart/ngx-emoji';
 import { Notification } from './notification';
+import {HttpClient} from '@angular/common/http';
+import {ApiConfiguration} from '../../services/api-configuration';
 
 @Component({
   selector: 'app-main',
@@ -30,6 +32,10 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
   selectedChat: ChatResponse = {};
   chats: Array<ChatResponse> = [];
   chatMessages: Array<MessageResponse> = [];
+  // Cursor of the older messages of the selected chat, if any
+  prevCursor?: string;
+  // Object URLs of the images shown, the media endpoint needs the bearer token
+  mediaSources = new Map<MessageResponse, string>();
   socketClient: any = null;
   messageContent: string = '';
   showEmojis = false;
@@ -40,6 +46,8 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
     private chatService: ChatService,
     private messageService: MessageService,
     private keycloakService: KeycloakService,
+    private http: HttpClient,
+    private apiConfiguration: ApiConfiguration,
   ) {
   }
 
@@ -48,6 +56,7 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
   }
 
   ngOnDestroy(): void {
+    this.clearMedia();
     if (this.socketClient !== null) {
       this.socketClient.disconnect();
       this.notificationSubscription.unsubscribe();
@@ -62,6 +71,7 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
 
   chatSelected(chatResponse: ChatResponse) {
     this.selectedChat = chatResponse;
+    this.clearMedia();
     this.getAllChatMessages(chatResponse.id as string);
     this.setMessagesToSeen();
     this.selectedChat.unreadCount = 0;
@@ -119,37 +129,45 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
   uploadMedia(target: EventTarget | null) {
     const file = this.extractFileFromTarget(target);
     if (file !== null) {
-      const reader = new FileReader();
-      reader.onload = () => {
-        if (reader.result) {
-
-          const mediaLines = reader.result.toString().split(',')[1];
-
-          this.messageService.uploadMedia({
-            'chat-id': this.selectedChat.id as string,
-            body: {
-              file: file
-            }
-          }).subscribe({
-            next: () => {
-              const message: MessageResponse = {
-                senderId: this.getSenderId(),
-                receiverId: this.getReceiverId(),
-                content: 'Attachment',
-                type: 'IMAGE',
-                state: 'SENT',
-                media: [mediaLines],
-                createdAt: new Date().toString()
-              };
-              this.chatMessages.push(message);
-            }
-          });
+      this.messageService.uploadMedia({
+        'chat-id': this.selectedChat.id as string,
+        body: {
+          file: file
         }
-      }
-      reader.readAsDataURL(file);
+      }).subscribe({
+        next: () => {
+          const message: MessageResponse = {
+            senderId: this.getSenderId(),
+            receiverId: this.getReceiverId(),
+            content: 'Attachment',
+            type: 'IMAGE',
+            state: 'SENT',
+            mediaMimeType: file.type,
+            mediaSize: file.size,
+            createdAt: new Date().toString()
+          };
+          // Shown from the local file, no need to download it back
+          this.mediaSources.set(message, URL.createObjectURL(file));
+          this.chatMessages.push(message);
+        }
+      });
     }
   }
 
+  loadOlderMessages() {
+    this.messageService.getMessages({
+      'chat-id': this.selectedChat.id as string,
+      before: this.prevCursor
+    }).subscribe({
+      next: (page) => {
+        const messages = page.messages ?? [];
+        messages.forEach(m => this.loadMedia(m));
+        this.chatMessages = [...messages, ...this.chatMessages];
+        this.prevCursor = page.prevCursor;
+      }
+    });
+  }
+
   logout() {
     this.keycloakService.logout();
   }
@@ -160,7 +178,7 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
 
   private setMessagesToSeen() {
     this.messageService.setMessagesToSeen({
-      'chat-id': this.selectedChat.id as string
+      'chat-id': [this.selectedChat.id as string]
     }).subscribe({
       next: () => {
       }
@@ -180,8 +198,10 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
     this.messageService.getMessages({
       'chat-id': chatId
     }).subscribe({
-      next: (messages) => {
-        this.chatMessages = messages;
+      next: (page) => {
+        this.chatMessages = page.messages ?? [];
+        this.chatMessages.forEach(m => this.loadMedia(m));
+        this.prevCursor = page.prevCursor;
       }
     });
   }
@@ -208,18 +228,28 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
 
   private handleNotification(notification: Notification) {
     if (!notification) return;
+    if (notification.type === 'BATCH') {
+      notification.notifications?.forEach(n => this.handleNotification(n));
+      return;
+    }
     if (this.selectedChat && this.selectedChat.id === notification.chatId) {
       switch (notification.type) {
         case 'MESSAGE':
         case 'IMAGE':
           const message: MessageResponse = {
+            id: notification.messageId,
+            chatId: notification.chatId,
+            seq: notification.seq,
             senderId: notification.senderId,
             receiverId: notification.receiverId,
             content: notification.content,
             type: notification.messageType,
-            media: notification.media,
+            mediaUrl: notification.mediaUrl,
+            mediaMimeType: notification.mediaMimeType,
+            mediaSize: notification.mediaSize,
             createdAt: new Date().toString()
           };
+          this.loadMedia(message);
           if (notification.type === 'IMAGE') {
             this.selectedChat.lastMessage = 'Attachment';
           } else {
@@ -270,6 +300,31 @@ export class MainComponent implements OnInit, OnDestroy, AfterViewChecked {
     return this.selectedChat.senderId as string;
   }
 
+  /**
+   * Downloads the image of a message (its thumbnail when one is rendered) with the bearer
+   * token and keeps an object URL to show it.
+   */
+  private loadMedia(message: MessageResponse) {
+    const url = message.thumbnailUrl ?? message.mediaUrl;
+    if (message.type !== 'IMAGE' || !url) {
+      return;
+    }
+    this.http.get(this.apiConfiguration.rootUrl + url, {responseType: 'blob'})
+      .subscribe({
+        next: (blob) => {
+          // Another chat may have been selected meanwhile
+          if (this.chatMessages.includes(message)) {
+            this.mediaSources.set(message, URL.createObjectURL(blob));
+          }
+        }
+      });
+  }
+
+  private clearMedia() {
+    this.mediaSources.forEach(source => URL.revokeObjectURL(source));
+    this.mediaSources.clear();
+  }
+
   private scrollToBottom() {
     if (this.scrollableDiv) {
       const div = this.scrollableDiv.nativeElement;
@@ -1,10 +1,17 @@
 export interface Notification {
     chatId?: string,
+    messageId?: number,
+    seq?: number,
     content?: string,
     senderId?: string,
     receiverId?: string;
     messageType?: 'TEXT' | 'IMAGE' | 'VIDEO' | 'AUDIO';
-    type?: 'SEEN' | 'MESSAGE' | 'IMAGE' | 'VIDEO' | 'AUDIO';
+    type?: 'SEEN' | 'MESSAGE' | 'IMAGE' | 'VIDEO' | 'AUDIO' | 'BATCH';
     chatName?: string,
-    media?: Array<string>;
+    // Media reference only, the file is fetched from mediaUrl
+    mediaUrl?: string;
+    mediaMimeType?: string;
+    mediaSize?: number;
+    // Grouped notifications (BATCH only)
+    notifications?: Array<Notification>;
 }
\ No newline at end of file
@@ -8,16 +8,24 @@ import { filter, map } from 'rxjs/operators';
 import { StrictHttpResponse } from '../../strict-http-response';
 import { RequestBuilder } from '../../request-builder';
 
-import { MessageResponse } from '../../models/message-response';
+import { MessagePageResponse } from '../../models/message-page-response';
 
 export interface GetMessages$Params {
   'chat-id': string;
+  size?: number;
+  before?: string;
+  after?: string;
+  around?: number;
 }
 
-export function getMessages(http: HttpClient, rootUrl: string, params: GetMessages$Params, context?: HttpContext): Observable<StrictHttpResponse<Array<MessageResponse>>> {
+export function getMessages(http: HttpClient, rootUrl: string, params: GetMessages$Params, context?: HttpContext): Observable<StrictHttpResponse<MessagePageResponse>> {
   const rb = new RequestBuilder(rootUrl, getMessages.PATH, 'get');
   if (params) {
     rb.path('chat-id', params['chat-id'], {});
+    rb.query('size', params.size, {});
+    rb.query('before', params.before, {});
+    rb.query('after', params.after, {});
+    rb.query('around', params.around, {});
   }
 
   return http.request(
@@ -25,7 +33,7 @@ export function getMessages(http: HttpClient, rootUrl: string, params: GetMessag
   ).pipe(
     filter((r: any): r is HttpResponse<any> => r instanceof HttpResponse),
     map((r: HttpResponse<any>) => {
-      return r as StrictHttpResponse<Array<MessageResponse>>;
+      return r as StrictHttpResponse<MessagePageResponse>;
     })
   );
 }
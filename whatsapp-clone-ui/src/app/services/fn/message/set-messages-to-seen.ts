@@ -10,7 +10,7 @@ import { RequestBuilder } from '../../request-builder';
 
 
 export interface SetMessagesToSeen$Params {
-  'chat-id': string;
+  'chat-id': Array<string>;
 }
 
 export function setMessagesToSeen(http: HttpClient, rootUrl: string, params: SetMessagesToSeen$Params, context?: HttpContext): Observable<StrictHttpResponse<void>> {
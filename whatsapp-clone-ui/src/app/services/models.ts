@@ -3,6 +3,7 @@
 /* Code generated by ng-openapi-gen DO NOT EDIT. */
 
 export type { ChatResponse } from './models/chat-response';
+export type { MessagePageResponse } from './models/message-page-response';
 export type { MessageRequest } from './models/message-request';
 export type { MessageResponse } from './models/message-response';
 export type { StringResponse } from './models/string-response';
@@ -9,6 +9,7 @@ export interface ChatResponse {
   name?: string;
   receiverId?: string;
   recipientOnline?: boolean;
+  seenUpToSeq?: number;
   senderId?: string;
   unreadCount?: number;
 }
@@ -0,0 +1,10 @@
+/* tslint:disable */
+/* eslint-disable */
+/* Code generated by ng-openapi-gen DO NOT EDIT. */
+
+import { MessageResponse } from '../models/message-response';
+export interface MessagePageResponse {
+  messages?: Array<MessageResponse>;
+  nextCursor?: string;
+  prevCursor?: string;
+}
@@ -3,12 +3,20 @@
 /* Code generated by ng-openapi-gen DO NOT EDIT. */
 
 export interface MessageResponse {
+  chatId?: string;
   content?: string;
   createdAt?: string;
   id?: number;
-  media?: Array<string>;
+  mediaHeight?: number;
+  mediaMimeType?: string;
+  mediaSize?: number;
+  mediaUrl?: string;
+  mediaWidth?: number;
+  placeholder?: Array<string>;
   receiverId?: string;
   senderId?: string;
+  seq?: number;
   state?: 'SENT' | 'SEEN';
+  thumbnailUrl?: string;
   type?: 'TEXT' | 'IMAGE' | 'AUDIO' | 'VIDEO';
 }
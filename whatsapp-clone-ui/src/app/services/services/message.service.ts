@@ -13,7 +13,7 @@ import { StrictHttpResponse } from '../strict-http-response';
 
 import { getMessages } from '../fn/message/get-messages';
 import { GetMessages$Params } from '../fn/message/get-messages';
-import { MessageResponse } from '../models/message-response';
+import { MessagePageResponse } from '../models/message-page-response';
 import { saveMessage } from '../fn/message/save-message';
 import { SaveMessage$Params } from '../fn/message/save-message';
 import { setMessagesToSeen } from '../fn/message/set-messages-to-seen';
@@ -111,7 +111,7 @@ export class MessageService extends BaseService {
    *
    * This method doesn't expect any request body.
    */
-  getMessages$Response(params: GetMessages$Params, context?: HttpContext): Observable<StrictHttpResponse<Array<MessageResponse>>> {
+  getMessages$Response(params: GetMessages$Params, context?: HttpContext): Observable<StrictHttpResponse<MessagePageResponse>> {
     return getMessages(this.http, this.rootUrl, params, context);
   }
 
@@ -121,9 +121,9 @@ export class MessageService extends BaseService {
    *
    * This method doesn't expect any request body.
    */
-  getMessages(params: GetMessages$Params, context?: HttpContext): Observable<Array<MessageResponse>> {
+  getMessages(params: GetMessages$Params, context?: HttpContext): Observable<MessagePageResponse> {
     return this.getMessages$Response(params, context).pipe(
-      map((r: StrictHttpResponse<Array<MessageResponse>>): Array<MessageResponse> => r.body)
+      map((r: StrictHttpResponse<MessagePageResponse>): MessagePageResponse => r.body)
     );
   }
 
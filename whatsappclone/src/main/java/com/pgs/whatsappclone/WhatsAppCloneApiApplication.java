@@ -3,6 +3,7 @@ package com.pgs.whatsappclone;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeIn;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
@@ -12,6 +13,7 @@ import io.swagger.v3.oas.annotations.security.SecurityScheme;
 
 @SpringBootApplication
 @EnableJpaAuditing
+@EnableScheduling
 @SecurityScheme(
 	    name = "keycloak",                       // Name of the security scheme (reference in Swagger)
 	    type = SecuritySchemeType.OAUTH2,       // Security type: OAuth2
@@ -0,0 +1,45 @@
+package com.pgs.whatsappclone.archive;
+
+import com.pgs.whatsappclone.common.BaseAuditingEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The media of an archived message, whose file was moved to the archive folder (see
+ * {@code FileService#archive}). Keeps the media endpoints working without opening segments.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "archived_media")
+public class ArchivedMedia extends BaseAuditingEntity {
+
+	@Id
+	private Long messageId;
+
+	@Column(nullable = false)
+	private String chatId;
+
+	@Column(nullable = false)
+	private String senderId;
+
+	@Column(nullable = false)
+	private String receiverId;
+
+	@Column(nullable = false)
+	private String blobKey;
+
+	private String mimeType;
+
+	@Column(nullable = false)
+	private boolean thumbnail;
+}
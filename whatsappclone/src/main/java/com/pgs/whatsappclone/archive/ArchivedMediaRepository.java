@@ -0,0 +1,7 @@
+package com.pgs.whatsappclone.archive;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ArchivedMediaRepository extends JpaRepository<ArchivedMedia, Long> {
+
+}
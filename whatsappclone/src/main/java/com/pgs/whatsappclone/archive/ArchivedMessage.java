@@ -0,0 +1,71 @@
+package com.pgs.whatsappclone.archive;
+
+import java.time.LocalDateTime;
+
+import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.message.Message;
+import com.pgs.whatsappclone.message.MessageState;
+import com.pgs.whatsappclone.message.MessageType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A message as written to an archive segment: the columns of {@code messages}, the chat
+ * reduced to its ID. The constructor is used by the query reading a month to archive.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ArchivedMessage {
+
+	private Long id;
+	private String chatId;
+	private Long seq;
+	private String content;
+	private MessageState state;
+	private MessageType type;
+	private String senderId;
+	private String receiverId;
+	private String mediaBlobKey;
+	private String mediaMimeType;
+	private Long mediaSize;
+	private Integer mediaWidth;
+	private Integer mediaHeight;
+	private byte[] mediaPlaceholder;
+	private boolean mediaThumbnail;
+	private LocalDateTime createdDate;
+	private LocalDateTime lastModifiedDate;
+
+	/**
+	 * Restores the message, detached from any persistence context, so that it is mapped like
+	 * the messages still in the database.
+	 *
+	 * @param chat the chat of the message
+	 * @return a new, transient {@link Message}
+	 */
+	public Message toMessage(Chat chat) {
+		Message message = new Message();
+		message.setId(this.id);
+		message.setChat(chat);
+		message.setSeq(this.seq);
+		message.setContent(this.content);
+		message.setState(this.state);
+		message.setType(this.type);
+		message.setSenderId(this.senderId);
+		message.setReceiverId(this.receiverId);
+		message.setMediaBlobKey(this.mediaBlobKey);
+		message.setMediaMimeType(this.mediaMimeType);
+		message.setMediaSize(this.mediaSize);
+		message.setMediaWidth(this.mediaWidth);
+		message.setMediaHeight(this.mediaHeight);
+		message.setMediaPlaceholder(this.mediaPlaceholder);
+		message.setMediaThumbnail(this.mediaThumbnail);
+		message.setCreatedDate(this.createdDate);
+		message.setLastModifiedDate(this.lastModifiedDate);
+		return message;
+	}
+}
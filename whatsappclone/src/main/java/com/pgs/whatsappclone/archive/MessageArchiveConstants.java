@@ -0,0 +1,26 @@
+package com.pgs.whatsappclone.archive;
+
+public class MessageArchiveConstants {
+
+	public static final String FIND_SEGMENTS_BEFORE = "MessageArchiveSegment.findSegmentsBefore";
+	public static final String FIND_SEGMENTS_IN_RANGE = "MessageArchiveSegment.findSegmentsInRange";
+	public static final String FIND_SEGMENTS_BY_CHAT_ID = "MessageArchiveSegment.findSegmentsByChatId";
+	public static final String STREAM_MESSAGES_CREATED_BETWEEN = "MessageArchiveSegment.streamMessagesCreatedBetween";
+	public static final String FIND_PARTITION_MONTHS_BEFORE = "MessageArchiveSegment.findPartitionMonthsBefore";
+	public static final String FIND_OLDEST_PARTITION_MONTH = "MessageArchiveSegment.findOldestPartitionMonth";
+	public static final String TRY_LOCK_ARCHIVAL = "MessageArchiveSegment.tryLockArchival";
+	public static final String DROP_PARTITION = "MessageArchiveSegment.dropPartition";
+	public static final String PARTITION_MONTH_MAPPING = "MessageArchiveSegment.partitionMonth";
+
+	// Rows fetched per database round trip while a month is archived
+	public static final int ARCHIVE_FETCH_SIZE = 500;
+
+	public static final String SEGMENT_SUFFIX = ".ndjson.gz";
+	public static final String MONTH_FOLDER_FORMAT = "yyyy_MM";
+	// Segments of a month are sharded by the first characters of the chat ID
+	public static final int SHARD_WIDTH = 2;
+
+	private MessageArchiveConstants() {
+
+	}
+}
@@ -0,0 +1,118 @@
+package com.pgs.whatsappclone.archive;
+
+import java.time.LocalDate;
+
+import com.pgs.whatsappclone.common.BaseAuditingEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.ColumnResult;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedNativeQueries;
+import jakarta.persistence.NamedNativeQuery;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.SqlResultSetMapping;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The messages of one chat created during one month, moved out of the {@code messages}
+ * table to a gzipped NDJSON file, one {@link ArchivedMessage} per line in sequence order.
+ * The row only keeps what is needed to find the file of a page: its sequence number range.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "message_archive_segments")
+@NamedQueries({
+	// Sequence numbers of adjacent months may overlap by the clock skew between nodes: the
+	// reader keeps going while a segment can still hold a newer message than the page
+	@NamedQuery(
+		name = MessageArchiveConstants.FIND_SEGMENTS_BEFORE,
+		query = "SELECT s FROM MessageArchiveSegment s WHERE s.chatId = :chatId AND s.firstSeq < :seq "
+				+ "ORDER BY s.lastSeq DESC"
+	),
+	@NamedQuery(
+		name = MessageArchiveConstants.FIND_SEGMENTS_IN_RANGE,
+		query = "SELECT s FROM MessageArchiveSegment s WHERE s.chatId = :chatId "
+				+ "AND s.firstSeq <= :toSeq AND s.lastSeq >= :fromSeq ORDER BY s.firstSeq ASC"
+	),
+	@NamedQuery(
+		name = MessageArchiveConstants.FIND_SEGMENTS_BY_CHAT_ID,
+		query = "SELECT s FROM MessageArchiveSegment s WHERE s.chatId = :chatId ORDER BY s.firstSeq ASC"
+	),
+	// Rows of one monthly partition (see V13), grouped by chat, as plain values: nothing is
+	// loaded into the persistence context while the month is written out
+	@NamedQuery(
+		name = MessageArchiveConstants.STREAM_MESSAGES_CREATED_BETWEEN,
+		query = "SELECT new com.pgs.whatsappclone.archive.ArchivedMessage(m.id, m.chat.id, m.seq, m.content, "
+				+ "m.state, m.type, m.senderId, m.receiverId, m.mediaBlobKey, m.mediaMimeType, m.mediaSize, "
+				+ "m.mediaWidth, m.mediaHeight, m.mediaPlaceholder, m.mediaThumbnail, m.createdDate, "
+				+ "m.lastModifiedDate) "
+				+ "FROM Message m WHERE m.createdDate >= :from AND m.createdDate < :until "
+				+ "ORDER BY m.chat.id, m.seq"
+	)
+})
+// Partition maintenance, see V14
+@NamedNativeQueries({
+	@NamedNativeQuery(
+		name = MessageArchiveConstants.FIND_PARTITION_MONTHS_BEFORE,
+		query = "SELECT month_start FROM message_partition_months() AS month_start "
+				+ "WHERE month_start + INTERVAL '1 month' <= :before ORDER BY month_start",
+		resultSetMapping = MessageArchiveConstants.PARTITION_MONTH_MAPPING
+	),
+	@NamedNativeQuery(
+		name = MessageArchiveConstants.FIND_OLDEST_PARTITION_MONTH,
+		query = "SELECT min(m) AS month_start FROM message_partition_months() AS m",
+		resultSetMapping = MessageArchiveConstants.PARTITION_MONTH_MAPPING
+	),
+	// One archival at a time across the nodes, released with the transaction
+	@NamedNativeQuery(
+		name = MessageArchiveConstants.TRY_LOCK_ARCHIVAL,
+		query = "SELECT pg_try_advisory_xact_lock(hashtext('archive_message_partition'))"
+	),
+	@NamedNativeQuery(
+		name = MessageArchiveConstants.DROP_PARTITION,
+		query = "SELECT drop_message_partition(:monthStart, :archivedRows)"
+	)
+})
+// Read as LocalDate rather than the java.sql.Date of the driver
+@SqlResultSetMapping(
+	name = MessageArchiveConstants.PARTITION_MONTH_MAPPING,
+	columns = @ColumnResult(name = "month_start", type = LocalDate.class)
+)
+public class MessageArchiveSegment extends BaseAuditingEntity {
+
+	@Id
+	private String id;
+
+	@Column(nullable = false)
+	private String chatId;
+
+	// First day of the month the messages were created in
+	@Column(nullable = false)
+	private LocalDate monthStart;
+
+	@Column(nullable = false)
+	private long firstSeq;
+
+	@Column(nullable = false)
+	private long lastSeq;
+
+	@Column(nullable = false)
+	private int messageCount;
+
+	// Relative to the segments folder, so that the archive can be moved
+	@Column(nullable = false)
+	private String path;
+
+	// Compressed size in bytes
+	@Column(nullable = false)
+	private long size;
+}
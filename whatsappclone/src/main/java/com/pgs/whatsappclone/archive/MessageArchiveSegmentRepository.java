@@ -0,0 +1,58 @@
+package com.pgs.whatsappclone.archive;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+
+public interface MessageArchiveSegmentRepository extends JpaRepository<MessageArchiveSegment, String> {
+
+	// Segments holding messages older than seq, newest last sequence number first
+	@Query(name = MessageArchiveConstants.FIND_SEGMENTS_BEFORE)
+	List<MessageArchiveSegment> findSegmentsBefore(@Param("chatId") String chatId, @Param("seq") long seq);
+
+	// Segments overlapping the range, both bounds included, oldest first
+	@Query(name = MessageArchiveConstants.FIND_SEGMENTS_IN_RANGE)
+	List<MessageArchiveSegment> findSegmentsInRange(
+			@Param("chatId") String chatId,
+			@Param("fromSeq") long fromSeq,
+			@Param("toSeq") long toSeq);
+
+	@Query(name = MessageArchiveConstants.FIND_SEGMENTS_BY_CHAT_ID)
+	List<MessageArchiveSegment> findSegmentsByChatId(@Param("chatId") String chatId);
+
+	// Server-side cursor over the messages of a month, must be consumed and closed within a
+	// transaction
+	@Query(name = MessageArchiveConstants.STREAM_MESSAGES_CREATED_BETWEEN)
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + MessageArchiveConstants.ARCHIVE_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	Stream<ArchivedMessage> streamMessagesCreatedBetween(
+			@Param("from") LocalDateTime from,
+			@Param("until") LocalDateTime until);
+
+	// Months whose partition ends before the given date, oldest first
+	@Query(name = MessageArchiveConstants.FIND_PARTITION_MONTHS_BEFORE, nativeQuery = true)
+	List<LocalDate> findPartitionMonthsBefore(@Param("before") LocalDate before);
+
+	// Empty if messages has no monthly partition
+	@Query(name = MessageArchiveConstants.FIND_OLDEST_PARTITION_MONTH, nativeQuery = true)
+	Optional<LocalDate> findOldestPartitionMonth();
+
+	@Query(name = MessageArchiveConstants.TRY_LOCK_ARCHIVAL, nativeQuery = true)
+	boolean tryLockArchival();
+
+	// Fails, rolling back the archival, if the partition does not hold exactly archivedRows
+	@Query(name = MessageArchiveConstants.DROP_PARTITION, nativeQuery = true)
+	long dropPartition(@Param("monthStart") LocalDate monthStart, @Param("archivedRows") long archivedRows);
+}
@@ -0,0 +1,419 @@
+package com.pgs.whatsappclone.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.file.FileService;
+import com.pgs.whatsappclone.message.Message;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cold storage of old conversations.
+ * <p>
+ * Once a monthly partition of {@code messages} (see V13) is older than the configured period,
+ * its rows are written to compressed, append-only segments, one per chat, their media files
+ * are moved to the archive folder and the partition is dropped. Only the small segment index
+ * stays in the database. Archived messages are read back through the same cursors as the
+ * others: {@code MessageService} falls through to this service when a client scrolls past
+ * the oldest message still in the table.
+ * </p>
+ * <p>
+ * Archived messages are no longer searchable nor returned by delta sync, and are never
+ * modified again.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveService {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final DateTimeFormatter MONTH_FOLDER = DateTimeFormatter.ofPattern(MessageArchiveConstants.MONTH_FOLDER_FORMAT);
+
+	private final MessageArchiveSegmentRepository segmentRepository;
+	private final ArchivedMediaRepository archivedMediaRepository;
+	private final ChatRepository chatRepository;
+	private final FileService fileService;
+	private final EntityManager entityManager;
+	private final ObjectMapper objectMapper;
+
+	// Months of messages older than this are archived
+	@Value("${application.archive.after:180d}")
+	private Duration archiveAfter;
+
+	@Value("${application.archive.segments-path:./archive/segments}")
+	private String segmentsPath;
+
+	// Oldest month still in the table as of the last run on this node. Only lags behind: a
+	// month archived since by another node is older than the configured period anyway
+	private volatile LocalDate oldestPartitionMonth = LocalDate.MIN;
+
+	/**
+	 * Archives the oldest month of messages past the configured period, if any. Runs at
+	 * startup, then on the configured interval, one month at a time; safe to run on several
+	 * nodes at once.
+	 * <p>
+	 * Segments are written and moved into place before the partition is dropped, in the same
+	 * transaction: if anything fails the month stays in the table and is archived again on
+	 * the next run, its segments overwritten.
+	 * </p>
+	 */
+	@Scheduled(fixedDelayString = "${application.archive.interval:1h}")
+	@Transactional
+	public void archiveOldestMonth() {
+		final LocalDate cutoff = LocalDateTime.now().minus(this.archiveAfter).toLocalDate();
+		this.segmentRepository.findOldestPartitionMonth().ifPresent(month -> this.oldestPartitionMonth = month);
+		List<LocalDate> months = this.segmentRepository.findPartitionMonthsBefore(cutoff);
+		if (months.isEmpty() || !this.segmentRepository.tryLockArchival()) {
+			return;
+		}
+		final LocalDate month = months.get(0);
+		log.info("Archiving messages of {}", month);
+
+		long archived = 0;
+		int segments = 0;
+		SegmentWriter writer = null;
+		try (Stream<ArchivedMessage> messages = this.segmentRepository.streamMessagesCreatedBetween(
+				month.atStartOfDay(), month.plusMonths(1).atStartOfDay())) {
+			Iterator<ArchivedMessage> iterator = messages.iterator();
+			while (iterator.hasNext()) {
+				ArchivedMessage message = iterator.next();
+				if (writer == null || !writer.chatId.equals(message.getChatId())) {
+					if (writer != null) {
+						this.completeSegment(writer);
+						segments++;
+					}
+					writer = this.openSegment(message.getChatId(), month);
+				}
+				writer.write(message);
+				if (message.getMediaBlobKey() != null) {
+					this.archiveMedia(message);
+				}
+				archived++;
+			}
+			if (writer != null) {
+				this.completeSegment(writer);
+				segments++;
+			}
+		} catch (IOException e) {
+			log.error("Failed to archive messages of {}", month, e);
+			throw new UncheckedIOException("Failed to archive messages of " + month, e);
+		} finally {
+			if (writer != null) {
+				writer.discard();
+			}
+		}
+
+		this.segmentRepository.dropPartition(month, archived);
+		log.info("Archived {} messages of {} in {} segments", archived, month, segments);
+		// Ahead if the transaction fails to commit: the month is then looked up in both places
+		this.oldestPartitionMonth = month.plusMonths(1);
+	}
+
+	/**
+	 * Tells whether messages created at or after a date may be archived, without reading the
+	 * segment index: only months older than the configured period, or than the oldest
+	 * partition left when the period was longer, are archived.
+	 *
+	 * @param since the earliest creation date
+	 * @return false if every message created since then is still in the table
+	 */
+	public boolean mayHoldMessagesSince(LocalDateTime since) {
+		final LocalDate archivableBefore = LocalDateTime.now().minus(this.archiveAfter).toLocalDate().withDayOfMonth(1);
+		final LocalDate oldestPartition = this.oldestPartitionMonth;
+		return since.toLocalDate().isBefore(archivableBefore.isAfter(oldestPartition) ? archivableBefore : oldestPartition);
+	}
+
+	/**
+	 * Finds the archived messages of a chat older than a sequence number.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param seq the exclusive upper bound
+	 * @param limit the maximum number of messages
+	 * @return the messages, newest first
+	 */
+	public List<Message> findMessagesBefore(String chatId, long seq, int limit) {
+		List<MessageArchiveSegment> segments = this.segmentRepository.findSegmentsBefore(chatId, seq);
+		if (segments.isEmpty()) {
+			return List.of();
+		}
+		final Comparator<ArchivedMessage> newestFirst = Comparator.comparing(ArchivedMessage::getSeq).reversed();
+		List<ArchivedMessage> found = new ArrayList<>();
+		for (MessageArchiveSegment segment : segments) {
+			if (found.size() >= limit && segment.getLastSeq() < found.get(limit - 1).getSeq()) {
+				break;
+			}
+			try (Stream<ArchivedMessage> messages = this.readSegment(segment)) {
+				messages.filter(m -> m.getSeq() < seq).forEach(found::add);
+			}
+			found.sort(newestFirst);
+		}
+		return this.toMessages(chatId, found, limit);
+	}
+
+	/**
+	 * Finds the archived messages of a chat newer than a sequence number.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param seq the exclusive lower bound
+	 * @param limit the maximum number of messages
+	 * @return the messages, oldest first
+	 */
+	public List<Message> findMessagesAfter(String chatId, long seq, int limit) {
+		return this.findMessagesInRange(chatId, seq + 1, Long.MAX_VALUE, limit);
+	}
+
+	/**
+	 * Finds the archived messages of a chat whose sequence numbers fall in a range.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param fromSeq the first sequence number
+	 * @param toSeq the last sequence number
+	 * @param limit the maximum number of messages
+	 * @return the messages, oldest first
+	 */
+	public List<Message> findMessagesInRange(String chatId, long fromSeq, long toSeq, int limit) {
+		List<MessageArchiveSegment> segments = this.segmentRepository.findSegmentsInRange(chatId, fromSeq, toSeq);
+		if (segments.isEmpty()) {
+			return List.of();
+		}
+		final Comparator<ArchivedMessage> oldestFirst = Comparator.comparing(ArchivedMessage::getSeq);
+		List<ArchivedMessage> found = new ArrayList<>();
+		for (MessageArchiveSegment segment : segments) {
+			if (found.size() >= limit && segment.getFirstSeq() > found.get(limit - 1).getSeq()) {
+				break;
+			}
+			try (Stream<ArchivedMessage> messages = this.readSegment(segment)) {
+				messages.filter(m -> m.getSeq() >= fromSeq && m.getSeq() <= toSeq).forEach(found::add);
+			}
+			found.sort(oldestFirst);
+		}
+		return this.toMessages(chatId, found, limit);
+	}
+
+	/**
+	 * Finds an archived message of a chat by ID. Segments are not indexed by message ID: the
+	 * ones of the chat are read from the newest until the message is found.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param messageId the ID of the message
+	 * @return the message, if archived in this chat
+	 */
+	public Optional<Message> findMessage(String chatId, Long messageId) {
+		List<MessageArchiveSegment> segments = new ArrayList<>(this.segmentRepository.findSegmentsByChatId(chatId));
+		for (int i = segments.size() - 1; i >= 0; i--) {
+			Optional<ArchivedMessage> found;
+			try (Stream<ArchivedMessage> messages = this.readSegment(segments.get(i))) {
+				found = messages.filter(m -> messageId.equals(m.getId())).findFirst();
+			}
+			if (found.isPresent()) {
+				return Optional.of(found.get().toMessage(this.findChat(chatId)));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Streams every archived message of a chat, oldest first, one segment in memory at most.
+	 * The stream must be closed.
+	 *
+	 * @param chat the chat
+	 * @return the messages, detached from any persistence context
+	 */
+	public Stream<Message> streamMessages(Chat chat) {
+		return this.segmentRepository.findSegmentsByChatId(chat.getId()).stream()
+				.flatMap(this::readSegment)
+				.map(message -> message.toMessage(chat));
+	}
+
+	/**
+	 * Finds the media of an archived message. The returned message only carries the
+	 * participants and the media attributes.
+	 *
+	 * @param messageId the ID of the message
+	 * @return the message, if its media was archived
+	 */
+	public Optional<Message> findMediaMessage(Long messageId) {
+		return this.archivedMediaRepository.findById(messageId).map(media -> {
+			Message message = new Message();
+			message.setId(media.getMessageId());
+			message.setSenderId(media.getSenderId());
+			message.setReceiverId(media.getReceiverId());
+			message.setMediaBlobKey(media.getBlobKey());
+			message.setMediaMimeType(media.getMimeType());
+			message.setMediaThumbnail(media.isThumbnail());
+			return message;
+		});
+	}
+
+	private List<Message> toMessages(String chatId, List<ArchivedMessage> found, int limit) {
+		if (found.isEmpty()) {
+			return List.of();
+		}
+		final Chat chat = this.findChat(chatId);
+		return found.stream().limit(limit).map(message -> message.toMessage(chat)).toList();
+	}
+
+	// Second-level cached
+	private Chat findChat(String chatId) {
+		return this.chatRepository.findById(chatId)
+				.orElseThrow(() -> new EntityNotFoundException("Chat not found, ID: " + chatId));
+	}
+
+	private void archiveMedia(ArchivedMessage message) {
+		this.fileService.archive(message.getMediaBlobKey());
+		// New rows: persist saves the select merge would run first
+		this.entityManager.persist(new ArchivedMedia(message.getId(), message.getChatId(), message.getSenderId(),
+				message.getReceiverId(), message.getMediaBlobKey(), message.getMediaMimeType(),
+				message.isMediaThumbnail()));
+	}
+
+	/**
+	 * Opens one segment for reading. Lines are parsed as the stream is consumed; closing the
+	 * stream closes the file.
+	 */
+	private Stream<ArchivedMessage> readSegment(MessageArchiveSegment segment) {
+		final Path path = Paths.get(this.segmentsPath).resolve(segment.getPath());
+		try {
+			InputStream input = new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE);
+			MappingIterator<ArchivedMessage> iterator = this.objectMapper.readerFor(ArchivedMessage.class).readValues(input);
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+					.onClose(() -> {
+						try {
+							iterator.close();
+						} catch (IOException e) {
+							log.warn("Failed to close archive segment {}: {}", path, e.getMessage());
+						}
+					});
+		} catch (IOException e) {
+			log.error("Failed to read archive segment {}", path, e);
+			throw new UncheckedIOException("Failed to read archive segment " + segment.getPath(), e);
+		}
+	}
+
+	private SegmentWriter openSegment(String chatId, LocalDate month) throws IOException {
+		final String relativePath = MONTH_FOLDER.format(month) + "/"
+				+ chatId.substring(0, Math.min(MessageArchiveConstants.SHARD_WIDTH, chatId.length())) + "/"
+				+ chatId + MessageArchiveConstants.SEGMENT_SUFFIX;
+		final Path target = Paths.get(this.segmentsPath).resolve(relativePath);
+		Files.createDirectories(target.getParent());
+		final Path tempFile = Files.createTempFile(target.getParent(), "segment", ".part");
+		FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+		GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+		SequenceWriter sequenceWriter = this.objectMapper.writerFor(ArchivedMessage.class)
+				.withRootValueSeparator("\n")
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.writeValues(gzip);
+		return new SegmentWriter(chatId, month, relativePath, target, tempFile, channel, gzip, sequenceWriter);
+	}
+
+	/**
+	 * Makes a written segment durable, moves it into place and records it.
+	 */
+	private void completeSegment(SegmentWriter writer) throws IOException {
+		writer.sequenceWriter.close();
+		writer.gzip.finish();
+		writer.gzip.flush();
+		writer.channel.force(false);
+		final long size = writer.channel.size();
+		writer.channel.close();
+		// Replaces the segment of an earlier attempt that was rolled back
+		Files.move(writer.tempFile, writer.target, StandardCopyOption.ATOMIC_MOVE);
+
+		this.entityManager.persist(new MessageArchiveSegment(UUID.randomUUID().toString(), writer.chatId,
+				writer.month, writer.firstSeq, writer.lastSeq, writer.count, writer.relativePath, size));
+		// Keep the persistence context from growing with the month
+		this.entityManager.flush();
+		this.entityManager.clear();
+	}
+
+	// A segment being written, to a temporary file until it is complete
+	private static final class SegmentWriter {
+
+		private final String chatId;
+		private final LocalDate month;
+		private final String relativePath;
+		private final Path target;
+		private final Path tempFile;
+		private final FileChannel channel;
+		private final GZIPOutputStream gzip;
+		private final SequenceWriter sequenceWriter;
+		private long firstSeq;
+		private long lastSeq;
+		private int count;
+
+		private SegmentWriter(String chatId, LocalDate month, String relativePath, Path target, Path tempFile,
+				FileChannel channel, GZIPOutputStream gzip, SequenceWriter sequenceWriter) {
+			this.chatId = chatId;
+			this.month = month;
+			this.relativePath = relativePath;
+			this.target = target;
+			this.tempFile = tempFile;
+			this.channel = channel;
+			this.gzip = gzip;
+			this.sequenceWriter = sequenceWriter;
+		}
+
+		private void write(ArchivedMessage message) throws IOException {
+			if (this.count == 0) {
+				this.firstSeq = message.getSeq();
+			}
+			this.lastSeq = message.getSeq();
+			this.count++;
+			this.sequenceWriter.write(message);
+		}
+
+		// Removes the temporary file of a segment that was not completed
+		private void discard() {
+			try {
+				this.gzip.close();
+			} catch (IOException e) {
+				log.debug("Failed to close segment {}: {}", this.tempFile, e.getMessage());
+			}
+			try {
+				Files.deleteIfExists(this.tempFile);
+			} catch (IOException e) {
+				log.warn("Failed to delete {}: {}", this.tempFile, e.getMessage());
+			}
+		}
+	}
+}
@@ -5,18 +5,26 @@ import static jakarta.persistence.GenerationType.UUID;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.pgs.whatsappclone.common.BaseAuditingEntity;
 import com.pgs.whatsappclone.message.Message;
-import com.pgs.whatsappclone.message.MessageState;
 import com.pgs.whatsappclone.message.MessageType;
 import com.pgs.whatsappclone.user.User;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedNativeQueries;
+import jakarta.persistence.NamedNativeQuery;
 import jakarta.persistence.NamedQueries;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
@@ -34,16 +42,71 @@ import lombok.Setter;
 @Setter
 @Entity
 @Table(name = "chat")
+// Second-level cache, see hibernate-cache.conf. The messages collection is never cached.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ChatConstants.CACHE_REGION)
 
 // ALL The chats by sender id (the first one creating the chat)
+// The participant filter is a subquery on an alias without joins: it is rendered on
+// chat.sender_id / recipient_id (indexed, see V10). With the fetch joins, c.sender.id is
+// rendered on the joined users rows and no chat index can be used.
 @NamedQueries({
     @NamedQuery(
         name = ChatConstants.FIND_CHAT_BY_SENDER_ID,
-        query = "SELECT DISTINCT c FROM Chat c WHERE c.sender.id = :senderId OR c.recipient.id = :senderId ORDER BY c.createdDate DESC"
+        query = "SELECT c FROM Chat c JOIN FETCH c.sender JOIN FETCH c.recipient WHERE c.id IN (SELECT p.id FROM Chat p WHERE p.sender.id = :senderId OR p.recipient.id = :senderId) ORDER BY c.lastMessageTime DESC NULLS LAST, c.createdDate DESC"
+    ),
+    // Single equality on the unique participant_key index, whatever the order of the participants
+    @NamedQuery(
+        name = ChatConstants.FIND_CHAT_ID_BY_PARTICIPANT_KEY,
+        query = "SELECT c.id FROM Chat c WHERE c.participantKey = :participantKey"
     ),
+    // Delta sync: chats of the user created or changed after the checkpoint (see V10)
     @NamedQuery(
-        name = ChatConstants.FIND_CHAT_BY_SENDER_ID_AND_RECEIVER,
-        query = "SELECT DISTINCT c FROM Chat c WHERE (c.sender.id = :senderId AND c.recipient.id = :recipientId) OR (c.sender.id = :recipientId AND c.recipient.id = :senderId)"
+        name = ChatConstants.FIND_CHATS_CHANGED_SINCE,
+        query = "SELECT c FROM Chat c JOIN FETCH c.sender JOIN FETCH c.recipient "
+        		+ "WHERE c.id IN (SELECT p.id FROM Chat p WHERE (p.sender.id = :userId OR p.recipient.id = :userId) "
+        		+ "AND coalesce(p.lastModifiedDate, p.createdDate) > :since) "
+        		+ "ORDER BY coalesce(c.lastModifiedDate, c.createdDate), c.id"
+    )
+})
+
+@NamedNativeQueries({
+    // Insert-or-return: a concurrent creation of the same pair loses the race on the unique index
+    // (see V9) and inserts nothing, the winner is then read back by key
+    @NamedNativeQuery(
+        name = ChatConstants.INSERT_CHAT_IF_ABSENT,
+        query = "INSERT INTO chat (id, sender_id, recipient_id, participant_key, sender_unread_count, recipient_unread_count, created_date) "
+        		+ "VALUES (:id, :senderId, :recipientId, :participantKey, 0, 0, :now) "
+        		+ "ON CONFLICT (participant_key) DO NOTHING"
+    ),
+    // Takes the next count sequence numbers of the chat and returns the last one. The row lock
+    // is held until commit: senders of the same chat are serialized, other chats are not, and
+    // a rollback gives the numbers back, so sequences have no gaps.
+    @NamedNativeQuery(
+        name = ChatConstants.RESERVE_MESSAGE_SEQS,
+        query = "UPDATE chat SET last_message_seq = last_message_seq + :count WHERE id = :chatId RETURNING last_message_seq"
+    ),
+    // Summary maintenance. Native so that Hibernate does not drop the whole chats cache region
+    // after each update, as it does for bulk JPQL updates: the caller evicts the updated chats
+    // one by one instead. Atomic so that concurrent messages never lose an increment.
+    @NamedNativeQuery(
+        name = ChatConstants.UPDATE_LAST_MESSAGE,
+        query = "UPDATE chat SET last_message_id = :messageId, last_message_preview = :preview, last_message_type = :type, last_message_time = :time, "
+        		+ "last_modified_date = :now, "
+        		+ "sender_unread_count = sender_unread_count + :senderUnreadIncrement, "
+        		+ "recipient_unread_count = recipient_unread_count + :recipientUnreadIncrement "
+        		+ "WHERE id = :chatId"
+    ),
+    // Moves the read watermark of the user to the last message and resets their unread counter
+    @NamedNativeQuery(
+        name = ChatConstants.MARK_CHATS_AS_READ,
+        query = "UPDATE chat SET "
+        		+ "sender_last_read_seq = CASE WHEN sender_id = :userId THEN last_message_seq ELSE sender_last_read_seq END, "
+        		+ "sender_unread_count = CASE WHEN sender_id = :userId THEN 0 ELSE sender_unread_count END, "
+        		+ "recipient_last_read_seq = CASE WHEN recipient_id = :userId THEN last_message_seq ELSE recipient_last_read_seq END, "
+        		+ "recipient_unread_count = CASE WHEN recipient_id = :userId THEN 0 ELSE recipient_unread_count END, "
+        		+ "last_modified_date = :now "
+        		+ "WHERE id IN (:chatIds) AND (sender_id = :userId OR recipient_id = :userId)"
     )
 })
 public class Chat extends BaseAuditingEntity{
@@ -60,10 +123,58 @@ public class Chat extends BaseAuditingEntity{
 	@JoinColumn(name = "recipient_Id")
 	private User recipient;
 	
-	@OneToMany(mappedBy = "chat", fetch = FetchType.EAGER)
-	@OrderBy("createdDate DESC")
+	// Canonical key of the participant pair, unique (see V9): at most one chat per pair
+	@Column(name = "participant_key", length = 511)
+	private String participantKey;
+	
+	@OneToMany(mappedBy = "chat", fetch = FetchType.LAZY)
+	@OrderBy("seq DESC")
 	private List<Message> messages;
 	
+	// Sequence number of the last message, see RESERVE_MESSAGE_SEQS
+	@Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+	private long lastMessageSeq;
+	
+	// Denormalized summary, kept up to date in the same transaction as the messages
+	private Long lastMessageId;
+	
+	@Column(length = ChatConstants.LAST_MESSAGE_PREVIEW_LENGTH)
+	private String lastMessagePreview;
+	
+	@Enumerated(EnumType.STRING)
+	private MessageType lastMessageType;
+	
+	private LocalDateTime lastMessageTime;
+	
+	// Unread messages addressed to the sender / to the recipient
+	@Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+	private long senderUnreadCount;
+	
+	@Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+	private long recipientUnreadCount;
+	
+	// Read watermarks: sequence number of the last message seen by the sender / by the
+	// recipient, 0 if none. Message IDs are not in chat order (pooled per node, see V15)
+	@Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+	private long senderLastReadSeq;
+	
+	@Column(columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+	private long recipientLastReadSeq;
+	
+	/**
+	 * Builds the canonical key of a pair of participants: both IDs in lexicographic order, so
+	 * that the key is the same whoever starts the chat.
+	 *
+	 * @param userId the ID of one participant
+	 * @param otherUserId the ID of the other participant
+	 * @return the participant key
+	 */
+	public static String participantKey(final String userId, final String otherUserId) {
+		return userId.compareTo(otherUserId) <= 0
+				? userId + ChatConstants.PARTICIPANT_KEY_SEPARATOR + otherUserId
+				: otherUserId + ChatConstants.PARTICIPANT_KEY_SEPARATOR + userId;
+	}
+	
 	@Transient
 	/**
 	 * Returns the full name of the other user participating in the chat.
@@ -106,65 +217,54 @@ public class Chat extends BaseAuditingEntity{
 	
 	@Transient
 	/**
-	 * Calculates the number of unread messages for the specified user.
+	 * Returns the number of unread messages for the specified user.
 	 * <p>
-	 * A message is considered unread if:
-	 * <ul>
-	 *   <li>The given user is the receiver of the message.</li>
-	 *   <li>The message state is {@code SENT} (i.e., not yet seen).</li>
-	 * </ul>
+	 * The value comes from the denormalized per-participant counters, no message is loaded.
+	 * </p>
 	 *
 	 * @param currentUserId the ID of the user for whom to count unread messages
 	 * @return the number of unread messages directed to the user
 	 */
 	public long getUnreadMessages(final String currentUserId) {
-		return messages
-				.stream()
-				.filter(m -> m.getReceiverId().equals(currentUserId))
-				.filter(m -> MessageState.SENT == m.getState())
-				.count();
+		if (sender.getId().equals(currentUserId)) {
+			return senderUnreadCount;
+		}
+		return recipientUnreadCount;
 	}
 	
 	@Transient
 	/**
-	 * Returns the content of the last message in the chat.
-	 * <p>
-	 * If the last message is not of type TEXT (e.g., audio or video), 
-	 * it returns the string "Attachment" instead.
-	 * Messages are expected to be ordered by creation date in descending order,
-	 * so the most recent message is at index 0.
-	 * <p>
-	 * If there are no messages, returns {@code null}.
+	 * Returns the read watermark of the given participant.
 	 *
-	 * @return the content of the last message or "Attachment" if it is not a text message, or {@code null} if no messages exist
+	 * @param userId the ID of the participant
+	 * @return the sequence number of the last message the user has seen, 0 if none
 	 */
-	public String getLastMessage() {
-		if(messages != null && !messages.isEmpty()) {
-			// Messages are ordered by created date -> 0 is the most recent
-			if(messages.get(0).getType() != MessageType.TEXT) {
-				// Audio or video
-				return "Attachment";
-			}
-			return messages.get(0).getContent();
+	public long getLastReadSeq(final String userId) {
+		if (sender.getId().equals(userId)) {
+			return senderLastReadSeq;
 		}
-		return null;
+		return recipientLastReadSeq;
 	}
 	
 	@Transient
 	/**
-	 * Returns the creation time of the last message in the chat.
+	 * Returns the content of the last message in the chat.
+	 * <p>
+	 * If the last message is not of type TEXT (e.g., audio or video), 
+	 * it returns the string "Attachment" instead.
 	 * <p>
-	 * Messages are expected to be ordered by creation date in descending order,
-	 * so the most recent message is at index 0.
-	 * </p>
 	 * If there are no messages, returns {@code null}.
 	 *
-	 * @return the {@link LocalDateTime} of the most recent message, or {@code null} if no messages exist
+	 * @return the content of the last message or "Attachment" if it is not a text message, or {@code null} if no messages exist
 	 */
-	public LocalDateTime getLastMessageTime() {
-		if(messages != null && !messages.isEmpty()) {
-			return messages.get(0).getCreatedDate();
+	public String getLastMessage() {
+		if (lastMessageType == null) {
+			return null;
+		}
+		if (lastMessageType != MessageType.TEXT) {
+			// Audio or video
+			return "Attachment";
 		}
-		return null;
+		return lastMessagePreview;
 	}
 }
@@ -3,7 +3,25 @@ package com.pgs.whatsappclone.chat;
 public class ChatConstants {
 
 	public static final String FIND_CHAT_BY_SENDER_ID = "Chat.findChatBySenderId";
-	public static final String FIND_CHAT_BY_SENDER_ID_AND_RECEIVER = "Chat.findChatBySenderIdAndReceiver";
+	public static final String FIND_CHAT_ID_BY_PARTICIPANT_KEY = "Chat.findChatIdByParticipantKey";
+	public static final String INSERT_CHAT_IF_ABSENT = "Chat.insertChatIfAbsent";
+	public static final String UPDATE_LAST_MESSAGE = "Chat.updateLastMessage";
+	public static final String MARK_CHATS_AS_READ = "Chat.markChatsAsRead";
+	public static final String RESERVE_MESSAGE_SEQS = "Chat.reserveMessageSeqs";
+	public static final String FIND_CHATS_CHANGED_SINCE = "Chat.findChatsChangedSince";
+	
+	// Second-level cache region, configured in hibernate-cache.conf
+	public static final String CACHE_REGION = "chats";
+	// Query space of the summary updates: matches no entity table, so Hibernate leaves the
+	// cache alone and the updated chats are evicted individually
+	public static final String SUMMARY_QUERY_SPACE = "chat_summary";
+	// Query space of the chat creation: a new row cannot be cached yet, nothing to invalidate
+	public static final String INSERT_QUERY_SPACE = "chat_insert";
+	
+	public static final int LAST_MESSAGE_PREVIEW_LENGTH = 100;
+	// Must match the backfill of V9
+	public static final String PARTICIPANT_KEY_SEPARATOR = "|";
+	
 	private ChatConstants() {
 		
 	}
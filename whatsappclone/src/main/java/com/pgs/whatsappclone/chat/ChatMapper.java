@@ -2,9 +2,16 @@ package com.pgs.whatsappclone.chat;
 
 import org.springframework.stereotype.Service;
 
+import com.pgs.whatsappclone.presence.PresenceService;
+
+import lombok.RequiredArgsConstructor;
+
 @Service
+@RequiredArgsConstructor
 public class ChatMapper {
 	
+	private final PresenceService presenceService;
+	
 	/**
 	 * Converts a {@link Chat} entity into a {@link ChatResponse} DTO, enriching it with dynamic
 	 * information such as unread message count, last message content, and online status of the recipient.
@@ -19,11 +26,16 @@ public class ChatMapper {
 				.name(chat.getChatName(senderId))
 				.unreadCount(chat.getUnreadMessages(senderId))
 				.lastMessage(chat.getLastMessage())
-				.isRecipientOnline(chat.getRecipient().isUserOnline())
+				.isRecipientOnline(this.presenceService.isOnline(chat.getRecipient().getId()))
 				.senderId(chat.getSender().getId())
 				.receiverId(chat.getRecipient().getId())
 				.lastMessageTime(chat.getLastMessageTime())
+				.seenUpToSeq(chat.getLastReadSeq(otherParticipantId(chat, senderId)))
 				.build();
 	}
+	
+	private static String otherParticipantId(Chat chat, String userId) {
+		return chat.getSender().getId().equals(userId) ? chat.getRecipient().getId() : chat.getSender().getId();
+	}
 
 }
@@ -1,19 +1,70 @@
 package com.pgs.whatsappclone.chat;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+
 public interface ChatRepository extends JpaRepository<Chat, String>{
 
 	// Linked automatically to the namedQuery in the model (the param was named senderId
 	@Query(name = ChatConstants.FIND_CHAT_BY_SENDER_ID)
 	List<Chat> findBySenderId(@Param ("senderId") String userId);
 
-	@Query(name = ChatConstants.FIND_CHAT_BY_SENDER_ID_AND_RECEIVER)
-	Optional<Chat> findChatByReceiverAndSender(@Param("senderId") String senderId,@Param("recipientId") String receiverId);
+	@Query(name = ChatConstants.FIND_CHAT_ID_BY_PARTICIPANT_KEY)
+	Optional<String> findChatIdByParticipantKey(@Param("participantKey") String participantKey);
+	
+	// Native INSERT ... ON CONFLICT DO NOTHING, returns 0 if the pair already has a chat
+	@Query(name = ChatConstants.INSERT_CHAT_IF_ABSENT, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ChatConstants.INSERT_QUERY_SPACE))
+	@Modifying
+	int insertIfAbsent(
+			@Param("id") String id,
+			@Param("senderId") String senderId,
+			@Param("recipientId") String recipientId,
+			@Param("participantKey") String participantKey,
+			@Param("now") LocalDateTime now);
+	
+	// UPDATE ... RETURNING, run as a query to read the result back (not @Modifying). Declares
+	// the summary space: pending inserts are not flushed and the cached chat is evicted by the
+	// summary update that follows.
+	@Query(name = ChatConstants.RESERVE_MESSAGE_SEQS, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ChatConstants.SUMMARY_QUERY_SPACE))
+	long reserveMessageSeqs(@Param("chatId") String chatId, @Param("count") int count);
+	
+	// Sets the last message summary and increments the unread counters of both participants.
+	// The cached chat must be evicted by the caller.
+	@Query(name = ChatConstants.UPDATE_LAST_MESSAGE, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ChatConstants.SUMMARY_QUERY_SPACE))
+	@Modifying
+	void updateLastMessage(
+			@Param("chatId") String chatId,
+			@Param("messageId") Long messageId,
+			@Param("preview") String preview,
+			@Param("type") String type,
+			@Param("time") LocalDateTime time,
+			@Param("senderUnreadIncrement") long senderUnreadIncrement,
+			@Param("recipientUnreadIncrement") long recipientUnreadIncrement,
+			@Param("now") LocalDateTime now);
+	
+	// Single UPDATE for all the chats, returns the number of chats marked.
+	// The cached chats must be evicted by the caller.
+	@Query(name = ChatConstants.MARK_CHATS_AS_READ, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ChatConstants.SUMMARY_QUERY_SPACE))
+	@Modifying
+	int markChatsAsRead(@Param("chatIds") Collection<String> chatIds, @Param("userId") String userId, @Param("now") LocalDateTime now);
+	
+	// Chats of the user changed after the given time, oldest change first
+	@Query(name = ChatConstants.FIND_CHATS_CHANGED_SINCE)
+	List<Chat> findChatsChangedSince(@Param("userId") String userId, @Param("since") LocalDateTime since);
 
 }
@@ -23,4 +23,7 @@ public class ChatResponse {
 	private boolean isRecipientOnline;
 	private String senderId;
 	private String receiverId;
+	// Read watermark of the other participant: messages of the user up to this sequence
+	// number are SEEN
+	private long seenUpToSeq;
 }
@@ -1,27 +1,46 @@
 package com.pgs.whatsappclone.chat;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.pgs.whatsappclone.user.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.pgs.whatsappclone.user.UserRepository;
 
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ChatService {
 	
 	private final ChatRepository chatRepository;
 	private final UserRepository userRepository;
 	private final ChatMapper mapper;
+	// Participant key -> chat ID, chats are never re-keyed so entries never go stale
+	private final Cache<String, String> chatIdsByParticipants;
+	
+	public ChatService(
+			ChatRepository chatRepository,
+			UserRepository userRepository,
+			ChatMapper mapper,
+			@Value("${application.chat.participants-cache.max-size:10000}") long cacheMaxSize) {
+		this.chatRepository = chatRepository;
+		this.userRepository = userRepository;
+		this.mapper = mapper;
+		this.chatIdsByParticipants = Caffeine.newBuilder()
+				.maximumSize(cacheMaxSize)
+				.build();
+	}
 	
 	@Transactional(readOnly = true)
 	/**
@@ -44,12 +63,14 @@ public class ChatService {
 	}
 	
 	/**
-	 * Creates a new chat between two users if it does not already exist.
+	 * Returns the chat between two users, creating it if it does not exist yet.
 	 * <p>
-	 * First, the method checks whether a chat already exists between the specified sender and receiver.
-	 * If such a chat exists, its ID is returned. Otherwise, both users are retrieved from the database
-	 * using their public IDs. If either user does not exist, an {@link EntityNotFoundException} is thrown.
-	 * A new {@link Chat} is then created and saved to the database, and its generated ID is returned.
+	 * Chats are identified by the canonical key of their participant pair
+	 * ({@link Chat#participantKey(String, String)}), unique in the database. Known pairs are
+	 * answered from a bounded in-memory cache without touching the database. Otherwise the
+	 * chat is looked up by key and, if missing, inserted with {@code ON CONFLICT DO NOTHING}:
+	 * when both users open the chat at the same moment only one row is created and both
+	 * requests return its ID.
 	 * </p>
 	 *
 	 * @param senderId   the public ID of the user initiating the chat
@@ -60,30 +81,42 @@ public class ChatService {
 	@Transactional
 	public String createChat(String senderId, String receiverId) {
 		log.info("Attempting to create chat between senderId={} and receiverId={}", senderId, receiverId);
+		final String participantKey = Chat.participantKey(senderId, receiverId);
+		final String cachedChatId = this.chatIdsByParticipants.getIfPresent(participantKey);
+		if (cachedChatId != null) {
+			return cachedChatId;
+		}
+
 		// First check if there is an already existing chat between the two members
-		Optional<Chat> existingChat = this.chatRepository.findChatByReceiverAndSender(senderId, receiverId);
-		if(existingChat.isPresent()) {
-			return existingChat.get().getId();
+		Optional<String> existingChatId = this.chatRepository.findChatIdByParticipantKey(participantKey);
+		if (existingChatId.isPresent()) {
+			this.chatIdsByParticipants.put(participantKey, existingChatId.get());
+			return existingChatId.get();
 		}
-		// Find both users by public ID
-		User sender = this.userRepository.findByPublicId(senderId)
-				.orElseThrow(() -> {
-					log.warn("Sender with ID {} not found", senderId);
-					return new EntityNotFoundException("User not found, ID: " + senderId);
-				});
-		User receiver = this.userRepository.findByPublicId(receiverId)
-				.orElseThrow(() -> {
-					log.warn("Receiver with ID {} not found", receiverId);
-					return new EntityNotFoundException("User not found, ID: " + receiverId);
-				});
-		// Implement the chat
-		Chat chat = new Chat();
-		chat.setSender(sender);
-		chat.setRecipient(receiver);
-		
-		Chat savedChat = this.chatRepository.save(chat);
-		log.info("Chat successfully created with ID: {}", savedChat.getId());
+		// Both users must exist
+		if (!this.userRepository.existsById(senderId)) {
+			log.warn("Sender with ID {} not found", senderId);
+			throw new EntityNotFoundException("User not found, ID: " + senderId);
+		}
+		if (!this.userRepository.existsById(receiverId)) {
+			log.warn("Receiver with ID {} not found", receiverId);
+			throw new EntityNotFoundException("User not found, ID: " + receiverId);
+		}
+
+		// Read back by key: the row inserted now, or the one a concurrent request inserted first
+		final boolean created = this.chatRepository.insertIfAbsent(
+				UUID.randomUUID().toString(), senderId, receiverId, participantKey, LocalDateTime.now()) > 0;
+		final String chatId = this.chatRepository.findChatIdByParticipantKey(participantKey)
+				.orElseThrow(() -> new IllegalStateException("Chat not found after insert, participants: " + participantKey));
+		log.info(created ? "Chat successfully created with ID: {}" : "Chat created concurrently, reusing ID: {}", chatId);
 
-		return savedChat.getId();	
+		// Only cached once the chat is committed, a rollback must not leave a dangling ID
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				chatIdsByParticipants.put(participantKey, chatId);
+			}
+		});
+		return chatId;
 	}
 }
@@ -0,0 +1,50 @@
+package com.pgs.whatsappclone.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * {@link javax.imageio.stream.ImageInputStream} over a (typically memory-mapped) buffer.
+ * Unlike the streams ImageIO builds for an {@code InputStream}, nothing is copied to the
+ * heap or to a temporary cache file.
+ */
+class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+	private final ByteBuffer buffer;
+
+	ByteBufferImageInputStream(ByteBuffer buffer) {
+		// Independent position, the buffer may be shared through the media cache
+		this.buffer = buffer.duplicate();
+		this.buffer.rewind();
+	}
+
+	@Override
+	public int read() throws IOException {
+		this.checkClosed();
+		this.bitOffset = 0;
+		if (this.streamPos >= this.buffer.limit()) {
+			return -1;
+		}
+		return this.buffer.get((int) this.streamPos++) & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		this.checkClosed();
+		this.bitOffset = 0;
+		if (this.streamPos >= this.buffer.limit()) {
+			return -1;
+		}
+		final int count = (int) Math.min(length, this.buffer.limit() - this.streamPos);
+		this.buffer.get((int) this.streamPos, bytes, offset, count);
+		this.streamPos += count;
+		return count;
+	}
+
+	@Override
+	public long length() {
+		return this.buffer.limit();
+	}
+}
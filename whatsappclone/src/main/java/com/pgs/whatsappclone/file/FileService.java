@@ -1,104 +1,519 @@
 package com.pgs.whatsappclone.file;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Content-addressable media store.
+ * <p>
+ * Files are named by the SHA-256 of their content and sharded by hash prefix
+ * ({@code blobs/ab/cd/abcd...}), so identical files are stored once whoever uploads them.
+ * Each blob is reference counted in {@code media_blobs}, one reference per message.
+ * Derivatives such as thumbnails live next to the blob and share its lifecycle. Blobs of
+ * archived messages are moved, with the same layout, to a separate archive folder that can
+ * sit on cheaper storage.
+ * </p>
+ * <p>
+ * A file is only moved into place or deleted while its {@code media_blobs} row is locked,
+ * so a blob with references always has its file. Files without references are deleted
+ * after commit, and by a periodic sweep when that did not happen.
+ * </p>
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FileService {
-	
-	@Value("{application.file.uploads.media-output-path}")
+
+	private static final String BLOBS_FOLDER = "blobs";
+	private static final String TMP_FOLDER = "tmp";
+	private static final Pattern BLOB_KEY = Pattern.compile("[0-9a-f]{64}");
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+	// Blob keys checked against media_blobs per query by the sweep
+	private static final int SWEEP_BATCH_SIZE = 500;
+
+	private final MediaBlobRepository mediaBlobRepository;
+	private final MediaReader mediaReader;
+	private final PlatformTransactionManager transactionManager;
+
+	@Value("${application.file.uploads.media-output-path}")
 	private String fileUploadPath;
-	
-	public String saveFile(
-			@NonNull MultipartFile sourceFile, 
-			@NonNull String userId) {
-		
-		final String fileUploadSubPath = "users" + File.separator + userId;
-		return uploadFile(sourceFile, fileUploadSubPath);		
+
+	@Value("${application.file.archive.media-output-path:./archive/media}")
+	private String archivePath;
+
+	@Value("${spring.servlet.multipart.max-file-size}")
+	private DataSize maxFileSize;
+
+	/**
+	 * Stores an uploaded file and takes a reference on it.
+	 *
+	 * @param sourceFile the multipart file to store; must not be null
+	 * @return the stored blob
+	 * @throws MaxUploadSizeExceededException if the file is larger than the configured maximum
+	 * @throws UncheckedIOException if the file cannot be read or written
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public StoredMedia saveFile(@NonNull MultipartFile sourceFile) {
+		log.debug("Storing uploaded file {} ({} bytes)", sourceFile.getOriginalFilename(), sourceFile.getSize());
+		try (InputStream input = sourceFile.getInputStream()) {
+			return this.saveFile(input, sourceFile.getContentType());
+		} catch (IOException e) {
+			log.error("Failed to read uploaded file {}", sourceFile.getOriginalFilename(), e);
+			throw new UncheckedIOException("Failed to read uploaded file", e);
+		}
+	}
+
+	/**
+	 * Stores the content of a stream and takes a reference on it.
+	 * <p>
+	 * The content is never held in memory: it is copied through a channel to a temporary
+	 * file while, in the same pass, it is hashed, its size is checked against the configured
+	 * maximum and its MIME type is sniffed from the first bytes. The temporary file is then
+	 * atomically moved to its sharded location, so readers never see a partial file. If a
+	 * blob with the same content already exists the temporary file is discarded and only the
+	 * reference count grows.
+	 * </p>
+	 *
+	 * @param input the content to store, not closed by this method
+	 * @param declaredMimeType the MIME type declared by the client, used when sniffing fails
+	 * @return the stored blob
+	 * @throws MaxUploadSizeExceededException if the content is larger than the configured maximum
+	 * @throws UncheckedIOException if the content cannot be read or written
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public StoredMedia saveFile(@NonNull InputStream input, String declaredMimeType) {
+		Path tempFile = null;
+		try {
+			tempFile = Files.createTempFile(this.stagingFolder(), "upload", ".part");
+			Content content;
+			try (FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+				content = this.scan(Channels.newChannel(input), target);
+				// Content must be durable before it becomes visible under its key
+				target.force(false);
+			}
+			return this.commit(tempFile, content, declaredMimeType);
+		} catch (IOException e) {
+			log.error("Failed to store uploaded file", e);
+			throw new UncheckedIOException("Failed to store uploaded file", e);
+		} finally {
+			deleteQuietly(tempFile);
+		}
 	}
 
 	/**
-	 * Uploads a file to a specified subdirectory within the configured upload path.
+	 * Stores a file already written to the staging folder and takes a reference on it.
 	 * <p>
-	 * If the target subdirectory does not exist, it attempts to create it.
-	 * The uploaded file is saved with a unique name based on the current timestamp,
-	 * preserving the original file extension.
+	 * The file is read once to hash it, check its size and sniff its MIME type, then moved
+	 * (not copied) to its sharded location. It is deleted if the content was already stored.
 	 * </p>
 	 *
-	 * @param sourceFile        the multipart file to upload; must not be null
-	 * @param fileUploadSubPath the relative subfolder path under the base upload directory; must not be null
-	 * @return the absolute path of the saved file if successful, or {@code null} if the operation failed
+	 * @param stagedFile a file created under {@link #stagingFolder()}, consumed by this method
+	 * @param declaredMimeType the MIME type declared by the client, used when sniffing fails
+	 * @return the stored blob
+	 * @throws MaxUploadSizeExceededException if the file is larger than the configured maximum
+	 * @throws UncheckedIOException if the file cannot be read or moved
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public StoredMedia saveFile(@NonNull Path stagedFile, String declaredMimeType) {
+		try {
+			Content content;
+			try (FileChannel source = FileChannel.open(stagedFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				content = this.scan(source, null);
+				source.force(false);
+			}
+			return this.commit(stagedFile, content, declaredMimeType);
+		} catch (IOException e) {
+			log.error("Failed to store staged file {}", stagedFile, e);
+			throw new UncheckedIOException("Failed to store staged file", e);
+		} finally {
+			deleteQuietly(stagedFile);
+		}
+	}
+
+	/**
+	 * Returns the folder where files are written before being stored. It is on the same file
+	 * system as the blobs, so that staged files can be atomically moved into place.
+	 *
+	 * @return the staging folder, created if needed
+	 * @throws IOException if the folder cannot be created
+	 */
+	public Path stagingFolder() throws IOException {
+		return Files.createDirectories(Paths.get(this.fileUploadPath, TMP_FOLDER));
+	}
+
+	/**
+	 * Reads a channel to its end, hashing the content, enforcing the maximum size and keeping
+	 * its first bytes, and copies it to {@code target} when one is given.
 	 */
-	private String uploadFile(
-	        @NonNull MultipartFile sourceFile,
-	        @NonNull String fileUploadSubPath) {
+	private Content scan(ReadableByteChannel source, FileChannel target) throws IOException {
+		final long maxSize = this.maxFileSize.toBytes();
+		MessageDigest digest = newDigest();
+		byte[] header = new byte[MediaTypeSniffer.HEADER_SIZE];
+		int headerLength = 0;
+		long size = 0;
 
-	    final String finalUploadPath = this.fileUploadPath + File.separator + fileUploadSubPath;
-	    File targetFolder = new File(finalUploadPath);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		while (source.read(buffer) != -1) {
+			buffer.flip();
+			size += buffer.remaining();
+			if (size > maxSize) {
+				log.warn("Upload rejected, larger than {} bytes", maxSize);
+				throw new MaxUploadSizeExceededException(maxSize);
+			}
+			if (headerLength < header.length) {
+				final int length = Math.min(header.length - headerLength, buffer.remaining());
+				buffer.get(buffer.position(), header, headerLength, length);
+				headerLength += length;
+			}
+			buffer.mark();
+			digest.update(buffer);
+			buffer.reset();
+			while (target != null && buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+			buffer.clear();
+		}
+		return new Content(HexFormat.of().formatHex(digest.digest()), size,
+				MediaTypeSniffer.sniff(header, headerLength));
+	}
 
-	    log.debug("Attempting to upload file: {}, to directory: {}", sourceFile.getOriginalFilename(), finalUploadPath);
+	/**
+	 * Moves a scanned file under its blob key, unless the blob already exists, and takes a
+	 * reference on the blob.
+	 */
+	private StoredMedia commit(Path file, Content content, String declaredMimeType) throws IOException {
+		final String key = content.key();
+		final String mimeType = content.sniffedMimeType().orElse(declaredMimeType);
+		if (mimeType != null && !mimeType.equals(declaredMimeType)) {
+			log.debug("Declared MIME type {} replaced by sniffed {}", declaredMimeType, mimeType);
+		}
 
-	    if (!targetFolder.exists()) {
-	        log.debug("Target folder does not exist. Attempting to create: {}", finalUploadPath);
-	        boolean folderCreated = targetFolder.mkdirs();
-	        if (!folderCreated) {
-	            log.warn("Failed to create the target folder: {}", targetFolder.getAbsolutePath());
-	            return null;
-	        } else {
-	            log.debug("Target folder created successfully: {}", targetFolder.getAbsolutePath());
-	        }
-	    }
+		// The reference is taken first: the row stays locked until commit, so the file cannot be
+		// deleted between the check below and the commit by a release of its last reference
+		final long refCount = this.mediaBlobRepository.acquire(key, content.size(), mimeType, LocalDateTime.now());
+		Path target = this.resolve(key);
+		if (Files.exists(target)) {
+			log.info("Blob {} already stored, deduplicated ({} references)", key, refCount);
+		} else {
+			Files.createDirectories(target.getParent());
+			try {
+				Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+				log.info("Blob {} stored at {}", key, target);
+				this.deleteOnRollback(key);
+			} catch (FileAlreadyExistsException e) {
+				log.debug("Blob {} stored concurrently, deduplicated", key);
+			}
+		}
+		return new StoredMedia(key, content.size(), mimeType);
+	}
+
+	/**
+	 * A file moved into place by a transaction that rolls back has no row: it is deleted
+	 * afterwards, unless an upload of the same content took a reference meanwhile.
+	 */
+	private void deleteOnRollback(String key) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_ROLLED_BACK) {
+					deleteIfUnreferenced(key);
+				}
+			}
+		});
+	}
 
-	    final String fileExtension = getFileExtension(sourceFile.getOriginalFilename());
-	    final String targetFileName = System.currentTimeMillis() + fileExtension;
-	    final String targetFilePath = finalUploadPath + File.separator + targetFileName;
-	    Path targetPath = Paths.get(targetFilePath);
+	/**
+	 * Drops one reference on a blob. Once no message references it, the file and its row are
+	 * deleted after the transaction commits.
+	 *
+	 * @param key the blob key; legacy file paths are ignored
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void release(String key) {
+		if (!isBlobKey(key) || this.mediaBlobRepository.release(key, LocalDateTime.now()).orElse(1L) > 0) {
+			return;
+		}
+		log.info("Blob {} no longer referenced", key);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				deleteIfUnreferenced(key);
+			}
+		});
+	}
 
-	    try {
-	        Files.write(targetPath, sourceFile.getBytes());
-	        log.info("File saved successfully to {}", targetPath);
-	        return targetFilePath;
-	    } catch (IOException e) {
-	        log.error("Failed to save file to {}", targetPath, e);
-	    }
+	/**
+	 * Deletes the files of the blobs that no message references: the ones of released blobs
+	 * whose deletion did not complete, and the ones left without a row by an upload that
+	 * failed after moving its file into place. Archived copies are not affected.
+	 */
+	@Scheduled(fixedDelayString = "${application.file.uploads.sweep-interval:24h}")
+	public void deleteUnreferencedBlobs() {
+		final Set<String> candidates = new HashSet<>(this.mediaBlobRepository.findUnreferencedKeys());
+		final Path blobs = Paths.get(this.fileUploadPath, BLOBS_FOLDER);
+		if (Files.isDirectory(blobs)) {
+			final List<String> stored = new ArrayList<>(SWEEP_BATCH_SIZE);
+			try (Stream<Path> files = Files.walk(blobs)) {
+				files.filter(Files::isRegularFile)
+						.map(FileService::keyOf)
+						.filter(FileService::isBlobKey)
+						.forEach(key -> {
+							stored.add(key);
+							if (stored.size() == SWEEP_BATCH_SIZE) {
+								this.addUnreferenced(stored, candidates);
+							}
+						});
+			} catch (IOException | UncheckedIOException e) {
+				log.warn("Failed to list the blobs in {}: {}", blobs, e.getMessage());
+			}
+			this.addUnreferenced(stored, candidates);
+		}
+		final long deleted = candidates.stream().filter(this::deleteIfUnreferenced).count();
+		if (deleted > 0) {
+			log.info("Deleted {} unreferenced blobs", deleted);
+		}
+	}
 
-	    return null;
+	private void addUnreferenced(List<String> stored, Set<String> candidates) {
+		if (stored.isEmpty()) {
+			return;
+		}
+		final Set<String> referenced = new HashSet<>(this.mediaBlobRepository.findReferencedKeys(stored));
+		stored.stream().filter(key -> !referenced.contains(key)).forEach(candidates::add);
+		stored.clear();
 	}
 
 	/**
-	 * Extracts the file extension from the given filename.
-	 * <p>
-	 * If the filename is null, empty, or does not contain a dot, an empty string is returned.
-	 * The returned extension is converted to lowercase.
-	 * </p>
+	 * Deletes the file and thumbnail of a blob, and its row, in a transaction of its own that
+	 * holds the row lock: an upload of the same content either completes first, and the blob
+	 * is kept, or waits and moves its own file back into place.
 	 *
-	 * @param fileName the name of the file (e.g., "document.pdf")
-	 * @return the file extension (e.g., "pdf") or an empty string if not present
+	 * @return whether the blob was deleted
 	 */
-	private String getFileExtension(String fileName) {
-	    if (fileName == null || fileName.isEmpty()) {
-	        return "";
-	    }
+	private boolean deleteIfUnreferenced(String key) {
+		try {
+			return Boolean.TRUE.equals(this.newTransaction().execute(status -> {
+				if (this.mediaBlobRepository.lock(key, LocalDateTime.now()) > 0) {
+					log.debug("Blob {} referenced again, kept", key);
+					return false;
+				}
+				final Path file = this.resolve(key);
+				final Path thumbnail = thumbnailOf(file);
+				deleteQuietly(file);
+				deleteQuietly(thumbnail);
+				this.mediaReader.evict(file);
+				this.mediaReader.evict(thumbnail);
+				this.mediaBlobRepository.deleteIfUnreferenced(key);
+				log.info("Blob {} deleted", key);
+				return true;
+			}));
+		} catch (RuntimeException e) {
+			// The row, or the file, is left for the next sweep
+			log.warn("Failed to delete blob {}: {}", key, e.getMessage());
+			return false;
+		}
+	}
 
-	    int lastDotIndex = fileName.lastIndexOf(".");
-	    if (lastDotIndex == -1 || lastDotIndex == fileName.length() - 1) {
-	        return "";
-	    }
+	private TransactionTemplate newTransaction() {
+		TransactionTemplate template = new TransactionTemplate(this.transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return template;
+	}
+
+	/**
+	 * Resolves the location of a blob on disk.
+	 *
+	 * @param key the blob key, or the file path stored by messages uploaded before blobs existed
+	 * @return the path of the file
+	 */
+	public Path resolve(@NonNull String key) {
+		if (!isBlobKey(key)) {
+			return Paths.get(key);
+		}
+		return shard(Paths.get(this.fileUploadPath, BLOBS_FOLDER), key);
+	}
+
+	/**
+	 * Resolves the location of the thumbnail of a blob, stored next to the original.
+	 *
+	 * @param key the blob key, or the file path stored by messages uploaded before blobs existed
+	 * @return the path of the thumbnail, which may not exist yet
+	 */
+	public Path resolveThumbnail(@NonNull String key) {
+		return thumbnailOf(this.resolve(key));
+	}
+
+	/**
+	 * Moves the blob of an archived message to the archive folder: the file and its thumbnail
+	 * are copied there, then the reference of the message is dropped, so the hot copy is
+	 * deleted once no live message shares it. Archived copies are never deleted.
+	 *
+	 * @param key the blob key; legacy file paths stay where they are
+	 * @throws UncheckedIOException if the file cannot be copied
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void archive(String key) {
+		if (!isBlobKey(key)) {
+			return;
+		}
+		final Path archived = this.resolveArchived(key);
+		try {
+			this.copyToArchive(this.resolve(key), archived);
+			this.copyToArchive(this.resolveThumbnail(key), thumbnailOf(archived));
+		} catch (IOException e) {
+			log.error("Failed to archive blob {}", key, e);
+			throw new UncheckedIOException("Failed to archive blob " + key, e);
+		}
+		this.release(key);
+	}
+
+	/**
+	 * Locates the file of a blob, in the upload folder or else in the archive folder.
+	 *
+	 * @param key the blob key, or the file path stored by messages uploaded before blobs existed
+	 * @return the path of the file, which may not exist
+	 */
+	public Path locate(@NonNull String key) {
+		final Path path = this.resolve(key);
+		if (!isBlobKey(key) || Files.exists(path)) {
+			return path;
+		}
+		final Path archived = this.resolveArchived(key);
+		return Files.exists(archived) ? archived : path;
+	}
+
+	/**
+	 * Locates the thumbnail of a blob, in the upload folder or else in the archive folder.
+	 *
+	 * @param key the blob key, or the file path stored by messages uploaded before blobs existed
+	 * @return the path of the thumbnail, which may not exist
+	 */
+	public Path locateThumbnail(@NonNull String key) {
+		final Path path = this.resolveThumbnail(key);
+		if (!isBlobKey(key) || Files.exists(path)) {
+			return path;
+		}
+		final Path archived = thumbnailOf(this.resolveArchived(key));
+		return Files.exists(archived) ? archived : path;
+	}
+
+	private Path resolveArchived(String key) {
+		return shard(Paths.get(this.archivePath, BLOBS_FOLDER), key);
+	}
+
+	/**
+	 * Copies a file to the archive folder through a temporary file, so that a partial copy is
+	 * never taken for the archived one. Content is immutable: an existing copy is kept.
+	 */
+	private void copyToArchive(Path source, Path target) throws IOException {
+		if (Files.exists(target)) {
+			return;
+		}
+		if (!Files.exists(source)) {
+			log.warn("Cannot archive {}, file missing", source);
+			return;
+		}
+		Files.createDirectories(target.getParent());
+		final Path tempFile = Files.createTempFile(target.getParent(), "archive", ".part");
+		try {
+			Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+				channel.force(false);
+			}
+			Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+			log.debug("Archived {} to {}", source, target);
+		} catch (FileAlreadyExistsException e) {
+			log.debug("{} archived concurrently", source);
+		} finally {
+			deleteQuietly(tempFile);
+		}
+	}
+
+	private static Path shard(Path root, String key) {
+		Path path = root;
+		for (int level = 0; level < MediaBlobConstants.SHARD_LEVELS; level++) {
+			final int start = level * MediaBlobConstants.SHARD_WIDTH;
+			path = path.resolve(key.substring(start, start + MediaBlobConstants.SHARD_WIDTH));
+		}
+		return path.resolve(key);
+	}
+
+	private static Path thumbnailOf(Path original) {
+		return original.resolveSibling(original.getFileName() + THUMBNAIL_SUFFIX);
+	}
+
+	// Key of a blob file or of its thumbnail
+	private static String keyOf(Path file) {
+		final String name = file.getFileName().toString();
+		return name.endsWith(THUMBNAIL_SUFFIX) ? name.substring(0, name.length() - THUMBNAIL_SUFFIX.length()) : name;
+	}
+
+	private static boolean isBlobKey(String key) {
+		return key != null && BLOB_KEY.matcher(key).matches();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(MediaBlobConstants.HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(MediaBlobConstants.HASH_ALGORITHM + " not available", e);
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.warn("Failed to delete {}: {}", path, e.getMessage());
+		}
+	}
 
-	    return fileName.substring(lastDotIndex + 1).toLowerCase();
+	// Outcome of a single pass over the content
+	private record Content(String key, long size, Optional<String> sniffedMimeType) {
 	}
 
 }
@@ -0,0 +1,164 @@
+package com.pgs.whatsappclone.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FileStreamingService {
+
+	// Tomcat sendfile request attributes (zero-copy from the page cache to the socket)
+	private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private final MediaReader mediaReader;
+
+	/**
+	 * Streams a file to the HTTP response, honouring a single-range {@code Range} header.
+	 * <p>
+	 * The file is never loaded into the heap: small files are served from their memory-mapped
+	 * copy in the {@link MediaReader} cache; larger ones are delegated to sendfile when the
+	 * servlet container supports it, otherwise bytes are moved with
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+	 * Multi-range requests are answered with the full content, as allowed by RFC 9110.
+	 * </p>
+	 *
+	 * @param filePath    the path of the file to stream; must not be null
+	 * @param contentType the MIME type of the file, probed from disk if {@code null}
+	 * @param rangeHeader the raw {@code Range} header, may be {@code null}
+	 * @param request     the current HTTP request
+	 * @param response    the current HTTP response
+	 * @throws IOException if the file cannot be read or the client connection fails
+	 */
+	public void streamFile(
+			@NonNull String filePath,
+			String contentType,
+			String rangeHeader,
+			HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+
+		final Path path = Paths.get(filePath);
+		if (!Files.isReadable(path)) {
+			log.warn("Requested media file is not readable: {}", filePath);
+			response.sendError(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+
+		final long fileSize = Files.size(path);
+		long start = 0;
+		long end = fileSize - 1;
+
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setContentType(resolveContentType(path, contentType));
+
+		if (StringUtils.hasText(rangeHeader)) {
+			try {
+				List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+				if (ranges.size() == 1) {
+					start = ranges.get(0).getRangeStart(fileSize);
+					end = ranges.get(0).getRangeEnd(fileSize);
+					// HttpRange only clamps the end: a start past the last byte, or any range
+					// of an empty file, selects nothing
+					if (start >= fileSize) {
+						throw new IllegalArgumentException("Range starts after the end of the file");
+					}
+					response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+				}
+			} catch (IllegalArgumentException e) {
+				log.debug("Unsatisfiable range '{}' for file {} of size {}", rangeHeader, filePath, fileSize);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+				response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				return;
+			}
+		}
+
+		final long length = end - start + 1;
+		response.setContentLengthLong(length);
+		if (length <= 0) {
+			return;
+		}
+
+		// Hot media is served from the cached mapping, no file is opened
+		if (this.mediaReader.isCacheable(fileSize)) {
+			Optional<ByteBuffer> cached = this.mediaReader.read(path);
+			if (cached.isPresent()) {
+				log.debug("Streaming {} bytes of {} from the media cache", length, filePath);
+				ByteBuffer slice = cached.get().slice((int) start, (int) length);
+				WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+				while (slice.hasRemaining()) {
+					target.write(slice);
+				}
+				return;
+			}
+		}
+
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+			log.debug("Streaming {} bytes of {} through sendfile", length, filePath);
+			request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, start);
+			// Exclusive end
+			request.setAttribute(SENDFILE_END, end + 1);
+			return;
+		}
+
+		log.debug("Streaming {} bytes of {} through FileChannel.transferTo", length, filePath);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			long remaining = length;
+			while (remaining > 0) {
+				long transferred = channel.transferTo(position, remaining, target);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+				remaining -= transferred;
+			}
+		}
+	}
+
+	/**
+	 * Returns the given content type or, if absent, the one probed from the file system,
+	 * defaulting to {@code application/octet-stream}.
+	 */
+	private String resolveContentType(Path path, String contentType) {
+		if (StringUtils.hasText(contentType)) {
+			return contentType;
+		}
+		try {
+			String probed = Files.probeContentType(path);
+			if (probed != null) {
+				return probed;
+			}
+		} catch (IOException e) {
+			log.debug("Could not probe content type of {}: {}", path, e.getMessage());
+		}
+		return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+	}
+}
@@ -0,0 +1,94 @@
+package com.pgs.whatsappclone.file;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ImageUtils {
+
+	private ImageUtils() {
+		
+	}
+	
+	/**
+	 * Builds a small preview of an image.
+	 * <p>
+	 * The image is decoded with source subsampling so that only roughly {@code maxSize * 2}
+	 * pixels per side are materialized, whatever the size of the original. The result is
+	 * scaled to fit in a {@code maxSize x maxSize} box and encoded as JPEG.
+	 * </p>
+	 *
+	 * @param image the encoded image, as returned by {@link MediaReader#read(java.nio.file.Path)}
+	 * @param maxSize the maximum width/height of the preview, in pixels
+	 * @return the original dimensions and the preview bytes, or empty if the content is not a readable image
+	 */
+	public static Optional<MediaPreview> createPreview(ByteBuffer image, int maxSize) {
+		try (ImageInputStream input = new ByteBufferImageInputStream(image)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext()) {
+				log.debug("No image reader available");
+				return Optional.empty();
+			}
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				final int width = reader.getWidth(0);
+				final int height = reader.getHeight(0);
+
+				// Skip pixels while decoding instead of loading the full-size image
+				ImageReadParam param = reader.getDefaultReadParam();
+				final int subsampling = Math.max(1, Math.max(width, height) / (maxSize * 2));
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				BufferedImage source = reader.read(0, param);
+
+				return Optional.of(new MediaPreview(width, height, toJpeg(scale(source, maxSize))));
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException | RuntimeException e) {
+			log.warn("Failed to build preview: {}", e.getMessage());
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Scales the image to fit in a {@code maxSize x maxSize} box, keeping its aspect ratio.
+	 */
+	public static BufferedImage scale(BufferedImage source, int maxSize) {
+		final double ratio = Math.min(1d, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+		final int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+		final int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+		// JPEG has no alpha channel, always draw into an RGB image
+		BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = target.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+		} finally {
+			graphics.dispose();
+		}
+		return target;
+	}
+
+	public static byte[] toJpeg(BufferedImage image) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", output);
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,83 @@
+package com.pgs.whatsappclone.file;
+
+import com.pgs.whatsappclone.common.BaseAuditingEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedNativeQueries;
+import jakarta.persistence.NamedNativeQuery;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A media file stored once, under the hash of its content, and shared by every message
+ * that references it.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "media_blobs")
+@NamedNativeQueries({
+	// Insert the blob or take one more reference on it, in a single round trip. Returns the new
+	// count; the row stays locked until commit, so the file cannot be deleted meanwhile
+	@NamedNativeQuery(
+		name = MediaBlobConstants.ACQUIRE_BLOB,
+		query = "INSERT INTO media_blobs (blob_key, size, mime_type, ref_count, created_date) "
+				+ "VALUES (:key, :size, :mimeType, 1, :now) "
+				+ "ON CONFLICT (blob_key) DO UPDATE SET "
+				+ "ref_count = media_blobs.ref_count + 1, last_modified_date = :now "
+				+ "RETURNING ref_count"
+	),
+	// Drops one reference and returns the remaining count. A blob no longer referenced keeps its
+	// row, at zero, until its file is deleted
+	@NamedNativeQuery(
+		name = MediaBlobConstants.RELEASE_BLOB,
+		query = "UPDATE media_blobs SET ref_count = ref_count - 1, last_modified_date = :now "
+				+ "WHERE blob_key = :key AND ref_count > 0 RETURNING ref_count"
+	),
+	// Locks the row of a blob, inserting it at zero if missing, and returns its count. Waits
+	// for an upload of the same content that is not committed yet
+	@NamedNativeQuery(
+		name = MediaBlobConstants.LOCK_BLOB,
+		query = "INSERT INTO media_blobs (blob_key, ref_count, created_date) VALUES (:key, 0, :now) "
+				+ "ON CONFLICT (blob_key) DO UPDATE SET ref_count = media_blobs.ref_count "
+				+ "RETURNING ref_count"
+	)
+})
+@NamedQueries({
+	@NamedQuery(
+		name = MediaBlobConstants.DELETE_UNREFERENCED_BLOB,
+		query = "DELETE FROM MediaBlob b WHERE b.key = :key AND b.refCount = 0"
+	),
+	@NamedQuery(
+		name = MediaBlobConstants.FIND_REFERENCED_KEYS,
+		query = "SELECT b.key FROM MediaBlob b WHERE b.key IN :keys AND b.refCount > 0"
+	),
+	@NamedQuery(
+		name = MediaBlobConstants.FIND_UNREFERENCED_KEYS,
+		query = "SELECT b.key FROM MediaBlob b WHERE b.refCount = 0"
+	)
+})
+public class MediaBlob extends BaseAuditingEntity {
+
+	// Hex encoded SHA-256 of the content
+	@Id
+	@Column(name = "blob_key", length = 64)
+	private String key;
+
+	private Long size;
+
+	private String mimeType;
+
+	// Number of messages referencing the blob
+	@Column(nullable = false)
+	private long refCount;
+}
@@ -0,0 +1,19 @@
+package com.pgs.whatsappclone.file;
+
+public class MediaBlobConstants {
+
+	public static final String ACQUIRE_BLOB = "MediaBlob.acquireBlob";
+	public static final String RELEASE_BLOB = "MediaBlob.releaseBlob";
+	public static final String LOCK_BLOB = "MediaBlob.lockBlob";
+	public static final String DELETE_UNREFERENCED_BLOB = "MediaBlob.deleteUnreferencedBlob";
+	public static final String FIND_REFERENCED_KEYS = "MediaBlob.findReferencedKeys";
+	public static final String FIND_UNREFERENCED_KEYS = "MediaBlob.findUnreferencedKeys";
+
+	// Hex characters of the hash used for each directory level: blobs/ab/cd/abcd...
+	public static final int SHARD_WIDTH = 2;
+	public static final int SHARD_LEVELS = 2;
+	public static final String HASH_ALGORITHM = "SHA-256";
+
+	private MediaBlobConstants() {
+	}
+}
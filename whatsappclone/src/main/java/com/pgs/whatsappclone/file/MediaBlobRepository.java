@@ -0,0 +1,48 @@
+package com.pgs.whatsappclone.file;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+	// Native INSERT ... ON CONFLICT ... RETURNING, run as a query to read the count back (not
+	// @Modifying); joins the caller's transaction
+	// Declared table: without it Hibernate clears the whole second-level cache after the query
+	@Query(name = MediaBlobConstants.ACQUIRE_BLOB, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_blobs"))
+	long acquire(
+			@Param("key") String key,
+			@Param("size") Long size,
+			@Param("mimeType") String mimeType,
+			@Param("now") LocalDateTime now);
+
+	// Empty if the blob has no reference left to drop
+	@Query(name = MediaBlobConstants.RELEASE_BLOB, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_blobs"))
+	Optional<Long> release(@Param("key") String key, @Param("now") LocalDateTime now);
+
+	@Query(name = MediaBlobConstants.LOCK_BLOB, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_blobs"))
+	long lock(@Param("key") String key, @Param("now") LocalDateTime now);
+
+	@Query(name = MediaBlobConstants.DELETE_UNREFERENCED_BLOB)
+	@Modifying
+	int deleteIfUnreferenced(@Param("key") String key);
+
+	@Query(name = MediaBlobConstants.FIND_REFERENCED_KEYS)
+	List<String> findReferencedKeys(@Param("keys") Collection<String> keys);
+
+	@Query(name = MediaBlobConstants.FIND_UNREFERENCED_KEYS)
+	List<String> findUnreferencedKeys();
+}
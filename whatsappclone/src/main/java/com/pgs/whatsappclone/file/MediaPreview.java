@@ -0,0 +1,15 @@
+package com.pgs.whatsappclone.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MediaPreview {
+
+	// Dimensions of the original image
+	private final int width;
+	private final int height;
+	// Tiny JPEG placeholder, a few hundred bytes at most
+	private final byte[] preview;
+}
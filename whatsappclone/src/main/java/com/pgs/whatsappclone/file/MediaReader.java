@@ -0,0 +1,105 @@
+package com.pgs.whatsappclone.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single entry point to read media files.
+ * <p>
+ * Files are memory-mapped, so their content lives in the OS page cache rather than in the
+ * Java heap. Mappings of files up to {@code max-entry-size} are kept in a cache bounded by
+ * their total size, with W-TinyLFU eviction, so recently sent media is not opened and
+ * read again on every request. Media files never change once written (blobs are named by
+ * their content), so cached mappings never go stale. Hits and misses are published as the
+ * {@code cache.*} metrics of the {@code media} cache.
+ * </p>
+ */
+@Service
+@Slf4j
+public class MediaReader {
+
+	private final Cache<Path, MappedByteBuffer> cache;
+	private final long maxEntrySize;
+
+	public MediaReader(
+			MeterRegistry meterRegistry,
+			@Value("${application.media.cache.max-size:256MB}") DataSize maxSize,
+			@Value("${application.media.cache.max-entry-size:8MB}") DataSize maxEntrySize) {
+		this.maxEntrySize = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE);
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maxSize.toBytes())
+				.weigher((Path path, MappedByteBuffer buffer) -> buffer.capacity())
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "media");
+	}
+
+	/**
+	 * Reads a media file.
+	 *
+	 * @param file the path of the file
+	 * @return a read-only buffer over the whole file, positioned at 0 and safe to consume,
+	 *         or empty if the file does not exist or cannot be read
+	 */
+	public Optional<ByteBuffer> read(Path file) {
+		try {
+			final long size = Files.size(file);
+			MappedByteBuffer mapped = this.isCacheable(size)
+					? this.cache.get(file.toAbsolutePath(), this::mapQuietly)
+					: map(file);
+			return Optional.ofNullable(mapped).map(ByteBuffer::asReadOnlyBuffer);
+		} catch (IOException e) {
+			log.debug("Media file {} cannot be read: {}", file, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Tells whether files of the given size are kept in the cache. Larger files are better
+	 * streamed straight from disk.
+	 */
+	public boolean isCacheable(long size) {
+		return size <= this.maxEntrySize;
+	}
+
+	/**
+	 * Drops a file from the cache, once it has been deleted.
+	 */
+	public void evict(Path file) {
+		this.cache.invalidate(file.toAbsolutePath());
+	}
+
+	private MappedByteBuffer mapQuietly(Path file) {
+		try {
+			return map(file);
+		} catch (IOException e) {
+			// Not cached, a later read retries
+			log.debug("Media file {} cannot be mapped: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping stays valid once the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
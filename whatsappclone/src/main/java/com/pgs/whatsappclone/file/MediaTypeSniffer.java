@@ -0,0 +1,100 @@
+package com.pgs.whatsappclone.file;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Detects the MIME type of a media file from its first bytes (magic numbers), so that the
+ * stored type does not depend on what the client declared.
+ */
+public class MediaTypeSniffer {
+
+	// Bytes needed to recognize every supported format
+	public static final int HEADER_SIZE = 16;
+
+	private MediaTypeSniffer() {
+
+	}
+
+	/**
+	 * Detects the MIME type from the header of a file.
+	 *
+	 * @param header the first bytes of the file
+	 * @param length the number of valid bytes in {@code header}
+	 * @return the detected MIME type, or empty if the format is not recognized
+	 */
+	public static Optional<String> sniff(byte[] header, int length) {
+		final byte[] bytes = Arrays.copyOf(header, Math.min(length, header.length));
+
+		if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) {
+			return Optional.of("image/jpeg");
+		}
+		if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+			return Optional.of("image/png");
+		}
+		if (startsWith(bytes, 0, "GIF87a") || startsWith(bytes, 0, "GIF89a")) {
+			return Optional.of("image/gif");
+		}
+		if (startsWith(bytes, 0, "RIFF")) {
+			if (startsWith(bytes, 8, "WEBP")) {
+				return Optional.of("image/webp");
+			}
+			if (startsWith(bytes, 8, "WAVE")) {
+				return Optional.of("audio/wav");
+			}
+			if (startsWith(bytes, 8, "AVI ")) {
+				return Optional.of("video/x-msvideo");
+			}
+		}
+		// ISO base media (MP4, MOV, M4A, HEIC): size, "ftyp", major brand
+		if (startsWith(bytes, 4, "ftyp")) {
+			if (startsWith(bytes, 8, "M4A ")) {
+				return Optional.of("audio/mp4");
+			}
+			if (startsWith(bytes, 8, "qt  ")) {
+				return Optional.of("video/quicktime");
+			}
+			if (startsWith(bytes, 8, "heic") || startsWith(bytes, 8, "heix") || startsWith(bytes, 8, "mif1")) {
+				return Optional.of("image/heic");
+			}
+			return Optional.of("video/mp4");
+		}
+		if (startsWith(bytes, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+			return Optional.of("video/webm");
+		}
+		if (startsWith(bytes, 0, "OggS")) {
+			return Optional.of("audio/ogg");
+		}
+		if (startsWith(bytes, 0, "fLaC")) {
+			return Optional.of("audio/flac");
+		}
+		if (startsWith(bytes, 0, "#!AMR")) {
+			return Optional.of("audio/amr");
+		}
+		// ID3 tag or a bare MPEG audio frame sync
+		if (startsWith(bytes, 0, "ID3") || (bytes.length > 1 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xE0) == 0xE0)) {
+			return Optional.of("audio/mpeg");
+		}
+		return Optional.empty();
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+		return startsWith(bytes, offset, prefix.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, int... prefix) {
+		final byte[] expected = new byte[prefix.length];
+		for (int i = 0; i < prefix.length; i++) {
+			expected[i] = (byte) prefix[i];
+		}
+		return startsWith(bytes, offset, expected);
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+		if (bytes.length < offset + prefix.length) {
+			return false;
+		}
+		return Arrays.equals(bytes, offset, offset + prefix.length, prefix, 0, prefix.length);
+	}
+}
@@ -0,0 +1,15 @@
+package com.pgs.whatsappclone.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StoredMedia {
+
+	// Blob key in the media store
+	private final String key;
+	private final long size;
+	// Sniffed from the content, the declared type only when unrecognized
+	private final String mimeType;
+}
@@ -0,0 +1,70 @@
+package com.pgs.whatsappclone.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Renders the thumbnails of image blobs. Thumbnails are stored next to the original file
+ * and shared, like the blob itself, by every message referencing it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ThumbnailService {
+
+	private final FileService fileService;
+	private final MediaReader mediaReader;
+
+	@Value("${application.media.thumbnail.size:320}")
+	private int thumbnailSize;
+
+	/**
+	 * Creates the thumbnail of an image blob, unless it already exists.
+	 *
+	 * @param key the blob key of the image
+	 * @return {@code true} if the thumbnail is available, {@code false} if the blob is not a readable image
+	 */
+	public boolean createThumbnail(String key) {
+		final Path target = this.fileService.resolveThumbnail(key);
+		if (Files.exists(target)) {
+			log.debug("Thumbnail of blob {} already exists", key);
+			return true;
+		}
+
+		Optional<MediaPreview> thumbnail = this.mediaReader.read(this.fileService.resolve(key))
+				.flatMap(image -> ImageUtils.createPreview(image, this.thumbnailSize));
+		if (thumbnail.isEmpty()) {
+			return false;
+		}
+
+		Path tempFile = null;
+		try {
+			// Written aside and moved, readers never see a partial thumbnail
+			tempFile = Files.createTempFile(target.getParent(), "thumbnail", ".part");
+			Files.write(tempFile, thumbnail.get().getPreview());
+			Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			log.info("Thumbnail of blob {} created at {}", key, target);
+			return true;
+		} catch (IOException e) {
+			log.warn("Failed to write thumbnail of blob {}: {}", key, e.getMessage());
+			return false;
+		} finally {
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException e) {
+					log.debug("Failed to delete {}: {}", tempFile, e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.pgs.whatsappclone.message;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchMessageResponse {
+
+	private int succeeded;
+	private int failed;
+	// One result per request item, in request order
+	private List<BatchMessageResult> results;
+}
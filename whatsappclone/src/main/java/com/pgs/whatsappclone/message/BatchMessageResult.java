@@ -0,0 +1,21 @@
+package com.pgs.whatsappclone.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchMessageResult {
+
+	// Position of the item in the request
+	private int index;
+	private boolean success;
+	private Long messageId;
+	private String error;
+}
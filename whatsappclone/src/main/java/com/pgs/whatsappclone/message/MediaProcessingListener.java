@@ -0,0 +1,74 @@
+package com.pgs.whatsappclone.message;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pgs.whatsappclone.file.ThumbnailService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background media pipeline: renders the thumbnail of every image message once the
+ * transaction that saved it has committed, on a bounded pool of workers.
+ * <p>
+ * When the queue is full the committing thread renders the thumbnail itself, which slows
+ * uploads down instead of dropping work.
+ * </p>
+ */
+@Component
+@Slf4j
+public class MediaProcessingListener {
+
+	private final ThumbnailService thumbnailService;
+	private final MessageRepository messageRepository;
+	private final ThreadPoolExecutor executor;
+
+	public MediaProcessingListener(
+			ThumbnailService thumbnailService,
+			MessageRepository messageRepository,
+			@Value("${application.media.processing.pool-size:2}") int poolSize,
+			@Value("${application.media.processing.queue-capacity:100}") int queueCapacity) {
+		this.thumbnailService = thumbnailService;
+		this.messageRepository = messageRepository;
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				new CustomizableThreadFactory("media-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onMediaUploaded(MediaUploadedEvent event) {
+		log.debug("Scheduling media processing: {}", event);
+		this.executor.execute(() -> this.process(event));
+	}
+
+	private void process(MediaUploadedEvent event) {
+		try {
+			if (this.thumbnailService.createThumbnail(event.getBlobKey())) {
+				this.messageRepository.markThumbnailReady(event.getMessageId(), event.getCreatedDate(), LocalDateTime.now());
+				log.info("Thumbnail ready for message {}", event.getMessageId());
+			} else {
+				log.warn("No thumbnail could be rendered for message {}", event.getMessageId());
+			}
+		} catch (RuntimeException e) {
+			log.error("Media processing failed for message {}", event.getMessageId(), e);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		this.executor.shutdown();
+		if (!this.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+			log.warn("Media processing still running at shutdown, {} tasks dropped", this.executor.shutdownNow().size());
+		}
+	}
+}
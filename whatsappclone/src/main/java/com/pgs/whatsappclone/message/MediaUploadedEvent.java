@@ -0,0 +1,19 @@
+package com.pgs.whatsappclone.message;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by MessageService when an image message is saved, handled after commit
+@Getter
+@AllArgsConstructor
+@ToString
+public class MediaUploadedEvent {
+
+	private final Long messageId;
+	// Partition key of the message
+	private final LocalDateTime createdDate;
+	private final String blobKey;
+}
@@ -12,6 +12,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedNativeQueries;
+import jakarta.persistence.NamedNativeQuery;
 import jakarta.persistence.NamedQueries;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.SequenceGenerator;
@@ -29,19 +31,103 @@ import lombok.Setter;
 @Table(name = "messages")
 
 @NamedQueries({
+    // Messages of a chat are ordered by their per-chat sequence number, unique within the chat
+    // (see V11), never by timestamps that may tie or go backwards across nodes
     @NamedQuery(
         name = MessageConstants.FIND_MESSAGES_BY_CHAT_ID,
-        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.createdDate"
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.seq"
     ),
+    // Keyset pagination: seq is the cursor, no OFFSET scans. The bounds on createdDate let
+    // Postgres skip the monthly partitions that cannot hold the page (see V13)
     @NamedQuery(
-        name = MessageConstants.SET_MESSAGES_TO_SEEN_BY_CHAT,
-        query = "UPDATE Message m SET m.state = :newState WHERE m.chat.id = :chatId"
+        name = MessageConstants.FIND_LATEST_MESSAGES_BY_CHAT_ID,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND m.createdDate >= :since ORDER BY m.seq DESC"
+    ),
+    @NamedQuery(
+        name = MessageConstants.FIND_MESSAGES_BEFORE_CURSOR,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND m.seq < :seq AND m.createdDate <= :until ORDER BY m.seq DESC"
+    ),
+    @NamedQuery(
+        name = MessageConstants.FIND_MESSAGES_AFTER_CURSOR,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND m.seq > :seq AND m.createdDate >= :since ORDER BY m.seq ASC"
+    ),
+    // Gap recovery: the exact range of sequence numbers a client missed
+    @NamedQuery(
+        name = MessageConstants.FIND_MESSAGES_IN_SEQ_RANGE,
+        query = "SELECT m FROM Message m WHERE m.chat.id = :chatId AND m.seq BETWEEN :fromSeq AND :toSeq ORDER BY m.seq ASC"
+    ),
+    @NamedQuery(
+        name = MessageConstants.MARK_THUMBNAIL_READY,
+        query = "UPDATE Message m SET m.mediaThumbnail = true, m.lastModifiedDate = :now "
+        		+ "WHERE m.id = :messageId AND m.createdDate = :createdDate"
+    ),
+    // Delta sync: messages sent, then received, by the user created or changed after the
+    // checkpoint, keyset paginated on (change time, id). One index range each (see V18); the
+    // caller merges both pages. Messages to oneself are only returned as sent
+    @NamedQuery(
+        name = MessageConstants.FIND_SENT_MESSAGES_CHANGED_SINCE,
+        query = "SELECT m FROM Message m JOIN FETCH m.chat "
+        		+ "WHERE m.senderId = :userId "
+        		+ "AND (coalesce(m.lastModifiedDate, m.createdDate), m.id) > (:since, :id) "
+        		+ "ORDER BY coalesce(m.lastModifiedDate, m.createdDate), m.id"
+    ),
+    @NamedQuery(
+        name = MessageConstants.FIND_RECEIVED_MESSAGES_CHANGED_SINCE,
+        query = "SELECT m FROM Message m JOIN FETCH m.chat "
+        		+ "WHERE m.receiverId = :userId AND m.senderId <> :userId "
+        		+ "AND (coalesce(m.lastModifiedDate, m.createdDate), m.id) > (:since, :id) "
+        		+ "ORDER BY coalesce(m.lastModifiedDate, m.createdDate), m.id"
+    )
+})
+
+// Full-text search on content_tsv (GIN indexed, generated from content, see V7), restricted
+// to the chats of the user. Ranked, keyset paginated on (rank, id); snippets are only built
+// for the returned page.
+@NamedNativeQueries({
+    @NamedNativeQuery(
+        name = MessageConstants.SEARCH_MESSAGES,
+        query = "SELECT hits.id AS \"id\", hits.chat_id AS \"chatId\", hits.sender_id AS \"senderId\", hits.type AS \"type\", "
+                + "hits.created_date AS \"createdAt\", hits.rank AS \"rank\", "
+                + "ts_headline('simple', hits.content, hits.query, 'MaxFragments=1, MinWords=5, MaxWords=20') AS \"snippet\" "
+                + "FROM (SELECT m.id, m.chat_id, m.sender_id, m.type, m.created_date, m.content, q.query, "
+                + "ts_rank(m.content_tsv, q.query) AS rank "
+                + "FROM messages m JOIN chat c ON c.id = m.chat_id "
+                + "CROSS JOIN websearch_to_tsquery('simple', :query) AS q(query) "
+                + "WHERE m.content_tsv @@ q.query AND (c.sender_id = :userId OR c.recipient_id = :userId) "
+                + ") hits "
+                + "WHERE (hits.rank, hits.id) < (:rank, :id) "
+                + "ORDER BY hits.rank DESC, hits.id DESC"
+    ),
+    @NamedNativeQuery(
+        name = MessageConstants.SEARCH_MESSAGES_IN_CHAT,
+        query = "SELECT hits.id AS \"id\", hits.chat_id AS \"chatId\", hits.sender_id AS \"senderId\", hits.type AS \"type\", "
+                + "hits.created_date AS \"createdAt\", hits.rank AS \"rank\", "
+                + "ts_headline('simple', hits.content, hits.query, 'MaxFragments=1, MinWords=5, MaxWords=20') AS \"snippet\" "
+                + "FROM (SELECT m.id, m.chat_id, m.sender_id, m.type, m.created_date, m.content, q.query, "
+                + "ts_rank(m.content_tsv, q.query) AS rank "
+                + "FROM messages m JOIN chat c ON c.id = m.chat_id "
+                + "CROSS JOIN websearch_to_tsquery('simple', :query) AS q(query) "
+                + "WHERE m.content_tsv @@ q.query AND (c.sender_id = :userId OR c.recipient_id = :userId) "
+                + "AND m.chat_id = :chatId) hits "
+                + "WHERE (hits.rank, hits.id) < (:rank, :id) "
+                + "ORDER BY hits.rank DESC, hits.id DESC"
+    ),
+    // Monthly partitions of messages covering the dates, returns how many were created (see V13)
+    @NamedNativeQuery(
+        name = MessageConstants.CREATE_PARTITIONS,
+        query = "SELECT create_message_partitions(:fromDate, :toDate)"
+    ),
+    // Messages whose creation date has no monthly partition, expected to be none
+    @NamedNativeQuery(
+        name = MessageConstants.COUNT_DEFAULT_PARTITION_MESSAGES,
+        query = "SELECT count(*) FROM messages_default"
     )
 })
 public class Message extends BaseAuditingEntity{
 	
 	@Id
-	@SequenceGenerator(name = "msg_seq", sequenceName = "msg_seq", allocationSize = 1)
+	// Pooled: one nextval per 50 IDs, matches INCREMENT BY of msg_seq and the JDBC batch size
+	@SequenceGenerator(name = "msg_seq", sequenceName = "msg_seq", allocationSize = 50)
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "msg_seq")
 	private Long id;
 	
@@ -58,11 +144,33 @@ public class Message extends BaseAuditingEntity{
 	@JoinColumn(name = "chat_id")
 	private Chat chat;
 	
+	// Position in the chat: 1, 2, 3... without gaps, assigned from Chat.lastMessageSeq on insert
+	@Column(nullable = false)
+	private Long seq;
+	
 	@Column(name = "sender_id", nullable = false)
 	private String senderId;
 	
 	@Column(name = "receiver_id", nullable = false)
 	private String receiverId;
 	
-	private String mediaFilePath;
+	// Key of the blob in the media store (legacy rows hold a file path)
+	@Column(name = "media_blob_key")
+	private String mediaBlobKey;
+	
+	private String mediaMimeType;
+	
+	private Long mediaSize;
+	
+	// Dimensions of the original image
+	private Integer mediaWidth;
+	
+	private Integer mediaHeight;
+	
+	// Tiny JPEG shown while the thumbnail or the original loads
+	private byte[] mediaPlaceholder;
+	
+	// Set by the background pipeline once the thumbnail has been rendered
+	@Column(nullable = false)
+	private boolean mediaThumbnail;
 }
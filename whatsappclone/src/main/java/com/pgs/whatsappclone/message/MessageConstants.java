@@ -1,9 +1,44 @@
 package com.pgs.whatsappclone.message;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 public class MessageConstants {
     
     public static final String FIND_MESSAGES_BY_CHAT_ID = "Messages.findMessagesByChatId";
-    public static final String SET_MESSAGES_TO_SEEN_BY_CHAT = "Messages.setMessagesToSeenByChat";
+    public static final String FIND_LATEST_MESSAGES_BY_CHAT_ID = "Messages.findLatestMessagesByChatId";
+    public static final String FIND_MESSAGES_BEFORE_CURSOR = "Messages.findMessagesBeforeCursor";
+    public static final String FIND_MESSAGES_AFTER_CURSOR = "Messages.findMessagesAfterCursor";
+    public static final String FIND_MESSAGES_IN_SEQ_RANGE = "Messages.findMessagesInSeqRange";
+    public static final String MARK_THUMBNAIL_READY = "Messages.markThumbnailReady";
+    public static final String SEARCH_MESSAGES = "Messages.searchMessages";
+    public static final String SEARCH_MESSAGES_IN_CHAT = "Messages.searchMessagesInChat";
+    public static final String FIND_SENT_MESSAGES_CHANGED_SINCE = "Messages.findSentMessagesChangedSince";
+    public static final String FIND_RECEIVED_MESSAGES_CHANGED_SINCE = "Messages.findReceivedMessagesChangedSince";
+    public static final String CREATE_PARTITIONS = "Messages.createPartitions";
+    public static final String COUNT_DEFAULT_PARTITION_MESSAGES = "Messages.countDefaultPartitionMessages";
+    
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_BATCH_SIZE = 1000;
+    
+    // Rows fetched per database round trip while exporting a chat
+    public static final int EXPORT_FETCH_SIZE = 500;
+    
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    
+    // Max width/height in pixels of the inline preview pushed over WebSocket
+    public static final int NOTIFICATION_PREVIEW_SIZE = 32;
+    
+    // Creation dates are set by the clock of each node: a message may look slightly older than
+    // the one before it in its chat. Margin added to the creation date bounds of the cursors.
+    public static final Duration CLOCK_SKEW_MARGIN = Duration.ofMinutes(5);
+    
+    // Creation date bounds that select every partition
+    public static final LocalDateTime UNBOUNDED_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    public static final LocalDateTime UNBOUNDED_UNTIL = LocalDateTime.of(9999, 12, 31, 0, 0);
     private MessageConstants() {
     }
 }
@@ -1,7 +1,11 @@
 package com.pgs.whatsappclone.message;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,14 +15,20 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.pgs.whatsappclone.file.FileService;
+import com.pgs.whatsappclone.file.FileStreamingService;
+
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -30,6 +40,8 @@ import lombok.extern.slf4j.Slf4j;
 public class MessageController {
 
 	private final MessageService messageService;
+	private final FileService fileService;
+	private final FileStreamingService fileStreamingService;
 	
 	/**
 	 * Handles the HTTP POST request to save a new message.
@@ -44,6 +56,20 @@ public class MessageController {
 	    log.info("Message saved successfully for chat ID: {}", message.getChatId());
 	}
 	
+	/**
+	 * Handles the HTTP POST request to save several messages at once.
+	 *
+	 * @param messages the message request payloads
+	 * @return a ResponseEntity containing the per-item result of the batch
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<BatchMessageResponse> saveMessages(@RequestBody List<MessageRequest> messages) {
+	    log.info("Received request to save a batch of {} messages", messages.size());
+	    BatchMessageResponse response = this.messageService.saveMessages(messages);
+	    log.info("Batch processed: {} succeeded, {} failed", response.getSucceeded(), response.getFailed());
+	    return ResponseEntity.ok(response);
+	}
+	
 	/**
 	 * Handles uploading a media file for a given chat.
 	 *
@@ -72,32 +98,166 @@ public class MessageController {
 	}
 	
 	/**
-	 * Marks all messages in the specified chat as "seen" by the authenticated user.
+	 * Streams the media file attached to a message.
+	 * <p>
+	 * Supports single-range {@code Range} requests (HTTP 206) so that clients can seek
+	 * in audio/video and resume interrupted downloads.
+	 * </p>
+	 *
+	 * @param messageId the ID of the message holding the media
+	 * @param range the optional {@code Range} header
+	 * @param authentication the current authenticated user
+	 * @param request the HTTP request
+	 * @param response the HTTP response the file is written to
+	 * @throws IOException if the file cannot be streamed
+	 */
+	@GetMapping("/{message-id}/media")
+	public void getMedia(
+			@PathVariable("message-id") Long messageId,
+			@RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+			Authentication authentication,
+			HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+	    log.info("Received request to stream media of message ID: {}", messageId);
+	    Message message = this.messageService.findMediaMessage(messageId, authentication);
+	    this.fileStreamingService.streamFile(this.fileService.locate(message.getMediaBlobKey()).toString(), message.getMediaMimeType(), range, request, response);
+	}
+	
+	/**
+	 * Streams the thumbnail of an image message, rendered in the background after upload.
+	 *
+	 * @param messageId the ID of the image message
+	 * @param range the optional {@code Range} header
+	 * @param authentication the current authenticated user
+	 * @param request the HTTP request
+	 * @param response the HTTP response the thumbnail is written to, 404 if not rendered yet
+	 * @throws IOException if the thumbnail cannot be streamed
+	 */
+	@GetMapping("/{message-id}/media/thumbnail")
+	public void getThumbnail(
+			@PathVariable("message-id") Long messageId,
+			@RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+			Authentication authentication,
+			HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+	    log.info("Received request to stream thumbnail of message ID: {}", messageId);
+	    Message message = this.messageService.findMediaMessage(messageId, authentication);
+	    this.fileStreamingService.streamFile(this.fileService.locateThumbnail(message.getMediaBlobKey()).toString(),
+	    		MediaType.IMAGE_JPEG_VALUE, range, request, response);
+	}
+	
+	/**
+	 * Exports the complete history of a chat as NDJSON (one message per line, oldest first).
+	 * <p>
+	 * The response is written while the messages are read from the database, so it is
+	 * never held in memory as a whole.
+	 * </p>
 	 *
-	 * @param chatId the ID of the chat whose messages should be marked as seen
+	 * @param chatId the ID of the chat to export
+	 * @param authentication the current authenticated user
+	 * @param response the HTTP response the messages are written to
+	 * @throws IOException if the response cannot be written
+	 */
+	@GetMapping(value = "/chat/{chat-id}/export", produces = MessageConstants.NDJSON_MEDIA_TYPE)
+	public void exportMessages(
+			@PathVariable("chat-id") String chatId,
+			Authentication authentication,
+			HttpServletResponse response) throws IOException {
+	    log.info("Received request to export messages of chat ID: {}", chatId);
+	    response.setContentType(MessageConstants.NDJSON_MEDIA_TYPE);
+	    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+	    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+	    		.filename("chat-" + chatId + ".ndjson")
+	    		.build()
+	    		.toString());
+	    final long exported = this.messageService.exportChatMessages(chatId, authentication, response.getOutputStream());
+	    log.info("Exported {} messages of chat ID: {}", exported, chatId);
+	}
+	
+	/**
+	 * Marks all messages in the specified chats as "seen" by the authenticated user.
+	 * The {@code chat-id} parameter can be repeated to mark several chats at once.
+	 *
+	 * @param chatIds the IDs of the chats whose messages should be marked as seen
 	 * @param authentication the current authenticated user
 	 */
 	@PatchMapping
 	@ResponseStatus(HttpStatus.ACCEPTED)
-	public void setMessagesToSeen(@RequestParam("chat-id") String chatId, Authentication authentication) {
-	    log.info("Request received to mark messages as SEEN for chat ID: {}", chatId);
-	    this.messageService.setMessagesToSeen(chatId, authentication);
-	    log.info("Messages marked as SEEN for chat ID: {}", chatId);
+	public void setMessagesToSeen(@RequestParam("chat-id") List<String> chatIds, Authentication authentication) {
+	    log.info("Request received to mark messages as SEEN for chat IDs: {}", chatIds);
+	    this.messageService.setMessagesToSeen(chatIds, authentication);
+	    log.info("Messages marked as SEEN for chat IDs: {}", chatIds);
 	}
 	
 	/**
-	 * Retrieves all messages associated with a given chat ID.
+	 * Full-text search over the messages of the authenticated user's chats.
+	 *
+	 * @param query the search terms, web search syntax
+	 * @param chatId optional chat to restrict the search to
+	 * @param size the maximum number of hits to return
+	 * @param cursor optional cursor returned by the previous page
+	 * @param authentication the current authenticated user
+	 * @return a ResponseEntity containing the ranked hits and an HTTP 200 status
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<MessageSearchResponse> searchMessages(
+			@RequestParam("q") String query,
+			@RequestParam(name = "chat-id", required = false) String chatId,
+			@RequestParam(name = "size", defaultValue = "" + MessageConstants.DEFAULT_SEARCH_PAGE_SIZE) int size,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			Authentication authentication) {
+	    log.info("Received request to search messages (chat ID: {})", chatId);
+	    return ResponseEntity.ok(this.messageService.searchMessages(query, chatId, size, cursor, authentication));
+	}
+	
+	/**
+	 * Retrieves a page of messages associated with a given chat ID.
+	 * <p>
+	 * Pagination is keyset based: use the returned {@code prevCursor} as {@code before} to load
+	 * older messages, {@code nextCursor} as {@code after} to load newer ones, or {@code around}
+	 * to open the history centered on a specific message.
+	 * </p>
 	 *
 	 * @param chatId the ID of the chat whose messages are to be retrieved
-	 * @return a ResponseEntity containing the list of MessageResponse objects and an HTTP 200 status
+	 * @param size the maximum number of messages to return
+	 * @param before optional cursor, only messages older than it are returned
+	 * @param after optional cursor, only messages newer than it are returned
+	 * @param around optional message ID the page is centered on
+	 * @return a ResponseEntity containing the page of messages and an HTTP 200 status
 	 */
 	@GetMapping("/chat/{chat-id}")
-	public ResponseEntity<List<MessageResponse>> getMessages(@PathVariable("chat-id") String chatId) {
+	public ResponseEntity<MessagePageResponse> getMessages(
+			@PathVariable("chat-id") String chatId,
+			@RequestParam(name = "size", defaultValue = "" + MessageConstants.DEFAULT_PAGE_SIZE) int size,
+			@RequestParam(name = "before", required = false) String before,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "around", required = false) Long around) {
 	    log.info("Received request to fetch messages for chat ID: {}", chatId);
 
-	    List<MessageResponse> messages = this.messageService.findChatMessages(chatId);
+	    MessagePageResponse page = this.messageService.findChatMessages(chatId, size, before, after, around);
 
-	    log.info("Returning {} messages for chat ID: {}", messages.size(), chatId);
-	    return ResponseEntity.ok(messages);
+	    log.info("Returning {} messages for chat ID: {}", page.getMessages().size(), chatId);
+	    return ResponseEntity.ok(page);
+	}
+	
+	/**
+	 * Retrieves the messages of a chat in a range of sequence numbers, both included.
+	 * <p>
+	 * Sequence numbers are consecutive within a chat: when a client sees a jump between two
+	 * notifications it fetches exactly the missing range here.
+	 * </p>
+	 *
+	 * @param chatId the ID of the chat
+	 * @param fromSeq the first sequence number to return
+	 * @param toSeq the last sequence number to return
+	 * @return a ResponseEntity containing the messages and an HTTP 200 status
+	 */
+	@GetMapping("/chat/{chat-id}/range")
+	public ResponseEntity<MessagePageResponse> getMessagesInRange(
+			@PathVariable("chat-id") String chatId,
+			@RequestParam("from-seq") long fromSeq,
+			@RequestParam("to-seq") long toSeq) {
+	    log.info("Received request to fetch messages {} to {} of chat ID: {}", fromSeq, toSeq, chatId);
+	    return ResponseEntity.ok(this.messageService.findChatMessagesInRange(chatId, fromSeq, toSeq));
 	}
 }
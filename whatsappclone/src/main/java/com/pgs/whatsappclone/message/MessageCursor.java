@@ -0,0 +1,87 @@
+package com.pgs.whatsappclone.message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque keyset cursor pointing at a message inside a chat.
+ * <p>
+ * The cursor is the sequence number of the message in its chat, so that pages can be
+ * fetched with an indexed range predicate on {@code (chat_id, seq)} instead of an
+ * {@code OFFSET} scan. It also carries the creation date of the message, which bounds the
+ * monthly partitions the next page can be in.
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public class MessageCursor {
+
+	private static final String SEPARATOR = "|";
+
+	private final Long seq;
+	// Null for cursors issued before messages were partitioned
+	private final LocalDateTime createdDate;
+
+	public static MessageCursor of(Message message) {
+		return new MessageCursor(message.getSeq(), message.getCreatedDate());
+	}
+
+	/**
+	 * Returns the latest creation date of the messages older than this cursor.
+	 *
+	 * @return the upper bound, with a margin for the clock skew between nodes
+	 */
+	public LocalDateTime olderUntil() {
+		return this.createdDate != null
+				? this.createdDate.plus(MessageConstants.CLOCK_SKEW_MARGIN)
+				: MessageConstants.UNBOUNDED_UNTIL;
+	}
+
+	/**
+	 * Returns the earliest creation date of the messages newer than this cursor.
+	 *
+	 * @return the lower bound, with a margin for the clock skew between nodes
+	 */
+	public LocalDateTime newerSince() {
+		return this.createdDate != null
+				? this.createdDate.minus(MessageConstants.CLOCK_SKEW_MARGIN)
+				: MessageConstants.UNBOUNDED_FROM;
+	}
+
+	/**
+	 * Encodes this cursor as a URL-safe Base64 string.
+	 *
+	 * @return the encoded cursor
+	 */
+	public String encode() {
+		final String raw = this.seq + SEPARATOR + this.createdDate;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor previously produced by {@link #encode()}.
+	 *
+	 * @param cursor the encoded cursor
+	 * @return the decoded {@link MessageCursor}
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public static MessageCursor decode(String cursor) {
+		try {
+			final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			final int separatorIndex = raw.indexOf(SEPARATOR);
+			if (separatorIndex == -1) {
+				return new MessageCursor(Long.valueOf(raw), null);
+			}
+			return new MessageCursor(
+					Long.valueOf(raw.substring(0, separatorIndex)),
+					LocalDateTime.parse(raw.substring(separatorIndex + 1)));
+		} catch (DateTimeParseException | IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid message cursor: " + cursor, e);
+		}
+	}
+}
@@ -2,21 +2,71 @@ package com.pgs.whatsappclone.message;
 
 import org.springframework.stereotype.Service;
 
-import com.pgs.whatsappclone.file.FileUtils;
-
 @Service
 public class MessageMapper {
 	
+	private static final String MEDIA_URL_TEMPLATE = "/api/v1/messages/%d/media";
+	private static final String THUMBNAIL_URL_TEMPLATE = "/api/v1/messages/%d/media/thumbnail";
+	
 	public MessageResponse toMessageResponse(Message message) {
 		return MessageResponse.builder()
 				.id(message.getId())
+				.chatId(message.getChat().getId())
+				.seq(message.getSeq())
 				.content(message.getContent())
 				.senderId(message.getSenderId())
 				.receiverId(message.getReceiverId())
 				.type(message.getType())
-				.state(message.getState())
+				.state(toState(message))
 				.createdAt(message.getCreatedDate())
-				.media(FileUtils.readFileFromLocation(message.getMediaFilePath()))
+				.mediaUrl(toMediaUrl(message))
+				.mediaMimeType(message.getMediaMimeType())
+				.mediaSize(message.getMediaSize())
+				.thumbnailUrl(toThumbnailUrl(message))
+				.mediaWidth(message.getMediaWidth())
+				.mediaHeight(message.getMediaHeight())
+				.placeholder(message.getMediaPlaceholder())
 				.build();
 	}
+	
+	/**
+	 * Derives the state of a message from the read watermark of its receiver.
+	 * Messages marked SEEN before watermarks existed keep their stored state.
+	 *
+	 * @param message the message
+	 * @return {@code SEEN} if the receiver has read up to this message, {@code SENT} otherwise
+	 */
+	public MessageState toState(Message message) {
+		if (message.getState() == MessageState.SEEN) {
+			return MessageState.SEEN;
+		}
+		final long watermark = message.getChat().getLastReadSeq(message.getReceiverId());
+		return message.getSeq() <= watermark ? MessageState.SEEN : MessageState.SENT;
+	}
+	
+	/**
+	 * Builds the URL the media of a message can be streamed from.
+	 *
+	 * @param message the message
+	 * @return the media URL, or {@code null} if the message has no media attached
+	 */
+	public String toMediaUrl(Message message) {
+		if (message.getMediaBlobKey() == null) {
+			return null;
+		}
+		return String.format(MEDIA_URL_TEMPLATE, message.getId());
+	}
+	
+	/**
+	 * Builds the URL the thumbnail of an image message can be fetched from.
+	 *
+	 * @param message the message
+	 * @return the thumbnail URL, or {@code null} if no thumbnail has been rendered yet
+	 */
+	public String toThumbnailUrl(Message message) {
+		if (!message.isMediaThumbnail()) {
+			return null;
+		}
+		return String.format(THUMBNAIL_URL_TEMPLATE, message.getId());
+	}
 }
@@ -0,0 +1,24 @@
+package com.pgs.whatsappclone.message;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessagePageResponse {
+
+	// Messages ordered from oldest to newest
+	private List<MessageResponse> messages;
+	// Cursor to fetch older messages (null if there are none)
+	private String prevCursor;
+	// Cursor to fetch newer messages (null if there are none)
+	private String nextCursor;
+}
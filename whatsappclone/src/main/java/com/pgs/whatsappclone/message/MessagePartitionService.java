@@ -0,0 +1,55 @@
+package com.pgs.whatsappclone.message;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the monthly partitions of {@code messages} ahead of time (see V13), so that new
+ * messages never fall into the default partition.
+ * <p>
+ * Rows of the default partition are moved to the partition of their month when it is
+ * created (see V17). The ones left there belong to no month created ahead, typically months
+ * already archived or dates far in the past: they are reported, not moved.
+ * </p>
+ * <p>
+ * The comments of V13 name this service {@code MessagePartitionMaintainer}. Applied
+ * migrations are never edited: their checksum covers comments too.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessagePartitionService {
+
+	private final MessageRepository messageRepository;
+
+	@Value("${application.message.partitions.months-ahead:3}")
+	private int monthsAhead;
+
+	/**
+	 * Creates the missing partitions from the current month to the configured number of
+	 * months ahead. Runs at startup, then on the configured interval; safe to run on several
+	 * nodes at once.
+	 */
+	@Scheduled(fixedDelayString = "${application.message.partitions.maintenance-interval:12h}")
+	@Transactional
+	public void createUpcomingPartitions() {
+		final LocalDate today = LocalDate.now();
+		final int created = this.messageRepository.createPartitions(today, today.plusMonths(this.monthsAhead));
+		if (created > 0) {
+			log.info("Created {} message partitions up to {}", created, today.plusMonths(this.monthsAhead));
+		}
+		final long unpartitioned = this.messageRepository.countDefaultPartitionMessages();
+		if (unpartitioned > 0) {
+			log.warn("{} messages are in the default partition messages_default, created outside of the "
+					+ "monthly partitions; they are not archived and slow down partition creation", unpartitioned);
+		}
+	}
+}
@@ -1,20 +1,113 @@
 package com.pgs.whatsappclone.message;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 public interface MessageRepository extends JpaRepository<Message, Long>{
 	
-	// Linked to namedQuery in model
+	// Linked to namedQuery in model. Server-side cursor: rows are fetched from the database
+	// in chunks while the stream is consumed, read-only and bypassing the second-level cache.
+	// Must be consumed and closed within a transaction.
 	@Query(name = MessageConstants.FIND_MESSAGES_BY_CHAT_ID)
-	List<Message> findMessagesByChatId(String chatId);
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + MessageConstants.EXPORT_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+	})
+	Stream<Message> streamMessagesByChatId(@Param("chatId") String chatId);
+	
+	// Newest first among the messages created since the given time, Limit is rendered as a
+	// plain LIMIT (no OFFSET)
+	@Query(name = MessageConstants.FIND_LATEST_MESSAGES_BY_CHAT_ID)
+	List<Message> findLatestMessagesByChatId(@Param("chatId") String chatId, @Param("since") LocalDateTime since, Limit limit);
+	
+	// Newest first, strictly older than the cursor and created until the given time
+	@Query(name = MessageConstants.FIND_MESSAGES_BEFORE_CURSOR)
+	List<Message> findMessagesBeforeCursor(
+			@Param("chatId") String chatId,
+			@Param("seq") Long seq,
+			@Param("until") LocalDateTime until,
+			Limit limit);
+	
+	// Oldest first, strictly newer than the cursor and created since the given time
+	@Query(name = MessageConstants.FIND_MESSAGES_AFTER_CURSOR)
+	List<Message> findMessagesAfterCursor(
+			@Param("chatId") String chatId,
+			@Param("seq") Long seq,
+			@Param("since") LocalDateTime since,
+			Limit limit);
+	
+	// Oldest first, both bounds included
+	@Query(name = MessageConstants.FIND_MESSAGES_IN_SEQ_RANGE)
+	List<Message> findMessagesInSeqRange(
+			@Param("chatId") String chatId,
+			@Param("fromSeq") Long fromSeq,
+			@Param("toSeq") Long toSeq,
+			Limit limit);
+	
+	// Ranked full-text search across the chats of the user, best first, after the cursor
+	@Query(name = MessageConstants.SEARCH_MESSAGES, nativeQuery = true)
+	List<MessageSearchHit> searchMessages(
+			@Param("query") String query,
+			@Param("userId") String userId,
+			@Param("rank") Float rank,
+			@Param("id") Long id,
+			Limit limit);
+	
+	// Same as searchMessages, within a single chat
+	@Query(name = MessageConstants.SEARCH_MESSAGES_IN_CHAT, nativeQuery = true)
+	List<MessageSearchHit> searchMessagesInChat(
+			@Param("query") String query,
+			@Param("userId") String userId,
+			@Param("chatId") String chatId,
+			@Param("rank") Float rank,
+			@Param("id") Long id,
+			Limit limit);
+	
+	// Called from the media pipeline, outside of any request transaction. The creation date
+	// selects the partition of the message
+	@Query(name = MessageConstants.MARK_THUMBNAIL_READY)
+	@Modifying
+	@Transactional
+	int markThumbnailReady(
+			@Param("messageId") Long messageId,
+			@Param("createdDate") LocalDateTime createdDate,
+			@Param("now") LocalDateTime now);
+	
+	// Messages sent by the user changed strictly after the (change time, id) checkpoint
+	@Query(name = MessageConstants.FIND_SENT_MESSAGES_CHANGED_SINCE)
+	List<Message> findSentMessagesChangedSince(
+			@Param("userId") String userId,
+			@Param("since") LocalDateTime since,
+			@Param("id") Long id,
+			Limit limit);
+
+	// Messages received by the user from someone else, same checkpoint
+	@Query(name = MessageConstants.FIND_RECEIVED_MESSAGES_CHANGED_SINCE)
+	List<Message> findReceivedMessagesChangedSince(
+			@Param("userId") String userId,
+			@Param("since") LocalDateTime since,
+			@Param("id") Long id,
+			Limit limit);
+	
+	// Creates the missing monthly partitions between the two dates, returns how many
+	@Query(name = MessageConstants.CREATE_PARTITIONS, nativeQuery = true)
+	int createPartitions(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
 	
-	@Query(name = MessageConstants.SET_MESSAGES_TO_SEEN_BY_CHAT)
-	@Modifying // Writing operation
-	void setMessagesToSeenByChatId(@Param("chatId") String chatId,@Param("newState") MessageState state);
+	@Query(name = MessageConstants.COUNT_DEFAULT_PARTITION_MESSAGES, nativeQuery = true)
+	long countDefaultPartitionMessages();
 
 }
@@ -15,11 +15,23 @@ import lombok.Setter;
 @Builder
 public class MessageResponse {
 	private Long id;
+	private String chatId;
+	// Position in the chat, consecutive: a jump means messages were missed
+	private Long seq;
 	private String content;
 	private MessageType type;
 	private MessageState state;
 	private String senderId;
 	private String receiverId;
 	private LocalDateTime createdAt;
-	private byte [] media;
+	// Media is fetched separately through GET /api/v1/messages/{id}/media
+	private String mediaUrl;
+	private String mediaMimeType;
+	private Long mediaSize;
+	// Image messages only: small JPEG to show in lists, null until rendered
+	private String thumbnailUrl;
+	private Integer mediaWidth;
+	private Integer mediaHeight;
+	// Tiny inline JPEG (base64 in JSON) to show until the thumbnail loads
+	private byte[] placeholder;
 }
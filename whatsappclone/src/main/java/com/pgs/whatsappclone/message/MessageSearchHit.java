@@ -0,0 +1,25 @@
+package com.pgs.whatsappclone.message;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by the full-text search queries, mapped by column alias.
+ */
+public interface MessageSearchHit {
+
+	Long getId();
+
+	String getChatId();
+
+	String getSenderId();
+
+	MessageType getType();
+
+	LocalDateTime getCreatedAt();
+
+	// ts_rank of the message for the query
+	Float getRank();
+
+	// Matching fragment with the terms wrapped in <b></b>
+	String getSnippet();
+}
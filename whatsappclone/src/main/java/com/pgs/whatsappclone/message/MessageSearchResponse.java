@@ -0,0 +1,22 @@
+package com.pgs.whatsappclone.message;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageSearchResponse {
+
+	// Best matches first
+	private List<MessageSearchResult> results;
+	// Cursor to fetch the next page (null if there are no more hits)
+	private String nextCursor;
+}
@@ -0,0 +1,27 @@
+package com.pgs.whatsappclone.message;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MessageSearchResult {
+	private Long messageId;
+	private String chatId;
+	// Name of the other participant, as shown in the chat list
+	private String chatName;
+	private String senderId;
+	private MessageType type;
+	private LocalDateTime createdAt;
+	// Matching fragment, terms wrapped in <b></b>
+	private String snippet;
+	private float rank;
+}
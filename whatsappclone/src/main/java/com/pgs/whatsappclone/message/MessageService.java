@@ -1,20 +1,54 @@
 package com.pgs.whatsappclone.message;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.pgs.whatsappclone.archive.MessageArchiveService;
 import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.chat.ChatConstants;
 import com.pgs.whatsappclone.chat.ChatRepository;
 import com.pgs.whatsappclone.file.FileService;
-import com.pgs.whatsappclone.file.FileUtils;
+import com.pgs.whatsappclone.file.ImageUtils;
+import com.pgs.whatsappclone.file.MediaReader;
+import com.pgs.whatsappclone.file.StoredMedia;
 import com.pgs.whatsappclone.notification.Notification;
 import com.pgs.whatsappclone.notification.NotificationService;
 import com.pgs.whatsappclone.notification.NotificationType;
 
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +62,16 @@ public class MessageService {
 	private final ChatRepository chatRepository;
 	private final MessageMapper mapper;
 	private final FileService fileService;
+	private final MediaReader mediaReader;
 	private final NotificationService notificationService;
+	private final EntityManager entityManager;
+	private final ObjectMapper objectMapper;
+	private final ApplicationEventPublisher eventPublisher;
+	private final MessageArchiveService messageArchiveService;
+
+	// Latest messages are first looked up among the ones created in this period (hot partitions)
+	@Value("${application.message.recent-window:31d}")
+	private Duration recentWindow;
 
 	/**
 	 * Saves a new message in the database associated with a chat.
@@ -48,28 +91,14 @@ public class MessageService {
 			log.error("Chat not found, ID: {}", messageRequest.getChatId());
 			return new EntityNotFoundException("Chat not found, ID: " + messageRequest.getChatId());
 		});
-		// Map message
-		Message message = new Message();
-		message.setContent(messageRequest.getContent());
-		message.setChat(chat);
-		message.setSenderId(messageRequest.getSenderId());
-		message.setReceiverId(messageRequest.getReceiverId());
-		message.setType(messageRequest.getType());
-		// SENT state by default
-		message.setState(MessageState.SENT);
+		Message message = this.toMessage(messageRequest, chat);
 
+		this.assignSeqs(chat, List.of(message));
 		this.messageRepository.save(message);
+		this.updateChatSummary(chat, List.of(message));
 		
 		// Build notification
-		Notification notification = Notification.builder()
-				.chatId(chat.getId())
-				.messageType(messageRequest.getType())
-				.content(messageRequest.getContent())
-				.senderId(messageRequest.getSenderId())
-				.receiverId(messageRequest.getReceiverId())
-				.type(NotificationType.MESSAGE)
-				.chatName(chat.getTargetChatName(message.getSenderId()))
-				.build();
+		Notification notification = this.toNotification(message);
 
 		log.info("Built notification to be sent to user {}: {}", message.getReceiverId(), notification);
 
@@ -81,81 +110,549 @@ public class MessageService {
 	}
 
 	/**
-	 * Retrieves all messages for a given chat ID and maps them to MessageResponse
-	 * DTOs.
-	 * 
+	 * Saves a batch of messages in a single transaction.
+	 * <p>
+	 * Every item is validated first (chat exists, sender and receiver are its participants,
+	 * type and content are present); invalid items are reported as failed and skipped.
+	 * Valid messages are inserted with pooled IDs and JDBC batching, each chat summary is
+	 * updated once, and notifications are sent grouped per receiver.
+	 * </p>
+	 *
+	 * @param messageRequests the messages to save, at most {@link MessageConstants#MAX_BATCH_SIZE}
+	 * @return the per-item outcome, in request order
+	 * @throws IllegalArgumentException if the batch is larger than allowed
+	 */
+	@Transactional
+	public BatchMessageResponse saveMessages(List<MessageRequest> messageRequests) {
+		log.info("Saving batch of {} messages", messageRequests.size());
+		if (messageRequests.size() > MessageConstants.MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("Batch too large: " + messageRequests.size()
+					+ " messages, maximum is " + MessageConstants.MAX_BATCH_SIZE);
+		}
+
+		// One query for all the chats referenced by the batch
+		Set<String> chatIds = messageRequests.stream()
+				.map(MessageRequest::getChatId)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toSet());
+		Map<String, Chat> chats = this.chatRepository.findAllById(chatIds).stream()
+				.collect(Collectors.toMap(Chat::getId, Function.identity()));
+
+		BatchMessageResult[] results = new BatchMessageResult[messageRequests.size()];
+		List<Message> messages = new ArrayList<>();
+		List<Integer> messageIndexes = new ArrayList<>();
+		for (int i = 0; i < messageRequests.size(); i++) {
+			MessageRequest request = messageRequests.get(i);
+			Chat chat = request.getChatId() != null ? chats.get(request.getChatId()) : null;
+			String error = validate(request, chat);
+			if (error != null) {
+				results[i] = BatchMessageResult.builder().index(i).success(false).error(error).build();
+				continue;
+			}
+			messages.add(this.toMessage(request, chat));
+			messageIndexes.add(i);
+		}
+
+		// Sequence numbers are reserved and summaries updated once per chat, in request order
+		Map<String, List<Message>> messagesByChat = messages.stream()
+				.collect(Collectors.groupingBy(m -> m.getChat().getId(), LinkedHashMap::new, Collectors.toList()));
+		messagesByChat.values().forEach(chatMessages -> this.assignSeqs(chatMessages.get(0).getChat(), chatMessages));
+
+		this.messageRepository.saveAll(messages);
+
+		messagesByChat.values().forEach(chatMessages -> this.updateChatSummary(chatMessages.get(0).getChat(), chatMessages));
+
+		for (int i = 0; i < messages.size(); i++) {
+			int index = messageIndexes.get(i);
+			results[index] = BatchMessageResult.builder().index(index).success(true).messageId(messages.get(i).getId()).build();
+		}
+
+		// One frame per receiver
+		messages.stream()
+				.collect(Collectors.groupingBy(Message::getReceiverId, LinkedHashMap::new,
+						Collectors.mapping(this::toNotification, Collectors.toList())))
+				.forEach(this.notificationService::sendNotifications);
+
+		log.info("Batch saved: {} succeeded, {} failed", messages.size(), messageRequests.size() - messages.size());
+		return BatchMessageResponse.builder()
+				.succeeded(messages.size())
+				.failed(messageRequests.size() - messages.size())
+				.results(Arrays.asList(results))
+				.build();
+	}
+
+	/**
+	 * Validates a message request of a batch.
+	 *
+	 * @return the error message, or {@code null} if the request is valid
+	 */
+	private static String validate(MessageRequest request, Chat chat) {
+		if (chat == null) {
+			return "Chat not found, ID: " + request.getChatId();
+		}
+		if (request.getType() == null) {
+			return "Message type is required";
+		}
+		if (request.getType() != MessageType.TEXT) {
+			return "Only TEXT messages can be sent in a batch";
+		}
+		if (request.getContent() == null || request.getContent().isBlank()) {
+			return "Message content is required";
+		}
+		final String senderId = chat.getSender().getId();
+		final String recipientId = chat.getRecipient().getId();
+		final boolean participants = (senderId.equals(request.getSenderId()) && recipientId.equals(request.getReceiverId()))
+				|| (recipientId.equals(request.getSenderId()) && senderId.equals(request.getReceiverId()));
+		if (!participants) {
+			return "Sender and receiver must be the participants of chat " + chat.getId();
+		}
+		return null;
+	}
+
+	private Message toMessage(MessageRequest messageRequest, Chat chat) {
+		Message message = new Message();
+		message.setContent(messageRequest.getContent());
+		message.setChat(chat);
+		message.setSenderId(messageRequest.getSenderId());
+		message.setReceiverId(messageRequest.getReceiverId());
+		message.setType(messageRequest.getType());
+		// SENT state by default
+		message.setState(MessageState.SENT);
+		return message;
+	}
+
+	private Notification toNotification(Message message) {
+		return Notification.builder()
+				.chatId(message.getChat().getId())
+				.messageId(message.getId())
+				.seq(message.getSeq())
+				.messageType(message.getType())
+				.content(message.getContent())
+				.senderId(message.getSenderId())
+				.receiverId(message.getReceiverId())
+				.type(NotificationType.MESSAGE)
+				.chatName(message.getChat().getTargetChatName(message.getSenderId()))
+				.build();
+	}
+
+	/**
+	 * Retrieves a page of messages for a given chat using keyset pagination.
+	 * <p>
+	 * Only one anchor is honoured, in this order of precedence:
+	 * <ul>
+	 *   <li>{@code around}: page centered on the given message ID (the message itself included).</li>
+	 *   <li>{@code before}: messages strictly older than the cursor.</li>
+	 *   <li>{@code after}: messages strictly newer than the cursor.</li>
+	 *   <li>none: the most recent messages of the chat.</li>
+	 * </ul>
+	 * Messages are always returned from oldest to newest, together with the cursors needed
+	 * to continue in either direction. Past the oldest message still in the table, pages are
+	 * completed from the archive (see {@link MessageArchiveService}).
+	 * </p>
+	 *
 	 * @param chatId the ID of the chat whose messages are to be retrieved
-	 * @return a list of MessageResponse objects representing the messages of the
-	 *         chat
+	 * @param size   the requested page size, clamped to {@link MessageConstants#MAX_PAGE_SIZE}
+	 * @param before optional cursor, fetch messages older than it
+	 * @param after  optional cursor, fetch messages newer than it
+	 * @param around optional message ID to center the page on
+	 * @return a {@link MessagePageResponse} with the messages and the prev/next cursors
+	 * @throws EntityNotFoundException if the {@code around} message does not exist in the chat
+	 * @throws IllegalArgumentException if a cursor is malformed
 	 */
 	@Transactional(readOnly = true)
-	public List<MessageResponse> findChatMessages(String chatId) {
-		log.info("Fetching messages for chat ID {}", chatId);
+	public MessagePageResponse findChatMessages(String chatId, int size, String before, String after, Long around) {
+		log.info("Fetching messages for chat ID {} (size={}, before={}, after={}, around={})", chatId, size, before, after, around);
+		final int pageSize = Math.max(1, Math.min(size, MessageConstants.MAX_PAGE_SIZE));
+
+		MessagePageResponse page;
+		if (around != null) {
+			page = this.findMessagesAround(chatId, around, pageSize);
+		} else if (before != null) {
+			page = this.findMessagesBefore(chatId, MessageCursor.decode(before), pageSize);
+		} else if (after != null) {
+			page = this.findMessagesAfter(chatId, MessageCursor.decode(after), pageSize);
+		} else {
+			page = this.findLatestMessages(chatId, pageSize);
+		}
+
+		log.info("Found {} messages for chat ID {}", page.getMessages().size(), chatId);
+		return page;
+	}
 
-		List<MessageResponse> messages = this.messageRepository.findMessagesByChatId(chatId).stream()
-				.map(this.mapper::toMessageResponse).toList();
+	private MessagePageResponse findLatestMessages(String chatId, int pageSize) {
+		// One extra row tells us whether there are older messages. Recent partitions first:
+		// only chats quiet for longer than the window also read the older ones
+		List<Message> newestFirst = this.messageRepository.findLatestMessagesByChatId(
+				chatId, LocalDateTime.now().minus(this.recentWindow), Limit.of(pageSize + 1));
+		if (newestFirst.size() <= pageSize && !startsChat(newestFirst)) {
+			newestFirst = this.messageRepository.findLatestMessagesByChatId(
+					chatId, MessageConstants.UNBOUNDED_FROM, Limit.of(pageSize + 1));
+		}
+		newestFirst = this.withArchivedOlder(chatId, newestFirst, Long.MAX_VALUE, pageSize + 1);
+		final boolean hasOlder = newestFirst.size() > pageSize;
+		List<Message> messages = reverse(trim(newestFirst, pageSize));
+		return this.toPage(messages, hasOlder, false);
+	}
 
-		log.info("Found {} messages for chat ID {}", messages.size(), chatId);
-		return messages;
+	private MessagePageResponse findMessagesBefore(String chatId, MessageCursor cursor, int pageSize) {
+		List<Message> newestFirst = this.messageRepository.findMessagesBeforeCursor(
+				chatId, cursor.getSeq(), cursor.olderUntil(), Limit.of(pageSize + 1));
+		newestFirst = this.withArchivedOlder(chatId, newestFirst, cursor.getSeq(), pageSize + 1);
+		final boolean hasOlder = newestFirst.size() > pageSize;
+		List<Message> messages = reverse(trim(newestFirst, pageSize));
+		// The cursor itself is newer than anything in this page
+		return this.toPage(messages, hasOlder, true);
 	}
-	
+
+	private MessagePageResponse findMessagesAfter(String chatId, MessageCursor cursor, int pageSize) {
+		List<Message> oldestFirst = this.messageRepository.findMessagesAfterCursor(
+				chatId, cursor.getSeq(), cursor.newerSince(), Limit.of(pageSize + 1));
+		oldestFirst = this.withArchivedNewer(chatId, oldestFirst, cursor, pageSize + 1);
+		final boolean hasNewer = oldestFirst.size() > pageSize;
+		List<Message> messages = trim(oldestFirst, pageSize);
+		// The cursor itself is older than anything in this page
+		return this.toPage(messages, true, hasNewer);
+	}
+
+	private MessagePageResponse findMessagesAround(String chatId, Long messageId, int pageSize) {
+		Message anchor = this.messageRepository.findById(messageId)
+				.filter(m -> m.getChat().getId().equals(chatId))
+				.or(() -> this.messageArchiveService.findMessage(chatId, messageId))
+				.orElseThrow(() -> {
+					log.error("Message {} not found in chat {}", messageId, chatId);
+					return new EntityNotFoundException("Message not found, ID: " + messageId);
+				});
+
+		final int olderSize = pageSize / 2;
+		final int newerSize = pageSize - olderSize - 1;
+
+		final MessageCursor cursor = MessageCursor.of(anchor);
+		List<Message> olderNewestFirst = this.withArchivedOlder(chatId, this.messageRepository.findMessagesBeforeCursor(
+				chatId, cursor.getSeq(), cursor.olderUntil(), Limit.of(olderSize + 1)), cursor.getSeq(), olderSize + 1);
+		List<Message> newer = this.withArchivedNewer(chatId, this.messageRepository.findMessagesAfterCursor(
+				chatId, cursor.getSeq(), cursor.newerSince(), Limit.of(newerSize + 1)), cursor, newerSize + 1);
+
+		final boolean hasOlder = olderNewestFirst.size() > olderSize;
+		final boolean hasNewer = newer.size() > newerSize;
+
+		List<Message> messages = new ArrayList<>(reverse(trim(olderNewestFirst, olderSize)));
+		messages.add(anchor);
+		messages.addAll(trim(newer, newerSize));
+		return this.toPage(messages, hasOlder, hasNewer);
+	}
+
 	/**
-	 * Marks all messages in a given chat as "seen" for the recipient.
-	 *
-	 * <p>This method retrieves the chat by its ID, determines the recipient based on the
-	 * authenticated user, and updates the message state to {@code SEEN} for that chat.</p>
+	 * Retrieves the messages of a chat whose sequence numbers fall in a range, typically the
+	 * gap a client detected between two consecutive notifications or responses.
+	 * <p>
+	 * At most {@link MessageConstants#MAX_PAGE_SIZE} messages are returned; when the range is
+	 * larger the returned {@code nextCursor} continues from the last one.
+	 * </p>
 	 *
-	 * <p>The operation is executed within a transactional context to ensure consistency.</p>
-	 *
-	 * @param chatId the ID of the chat whose messages should be marked as seen
-	 * @param authentication the current authenticated user used to determine the recipient
-	 * @throws EntityNotFoundException if the chat with the given ID is not found
+	 * @param chatId the ID of the chat
+	 * @param fromSeq the first sequence number to return
+	 * @param toSeq the last sequence number to return
+	 * @return a {@link MessagePageResponse} with the messages from oldest to newest
+	 * @throws IllegalArgumentException if the range is empty or not positive
 	 */
-	@Transactional
-	public void setMessagesToSeen(String chatId, Authentication authentication) {
-	    log.info("Setting messages to SEEN for chat ID: {}", chatId);
+	@Transactional(readOnly = true)
+	public MessagePageResponse findChatMessagesInRange(String chatId, long fromSeq, long toSeq) {
+		log.info("Fetching messages {} to {} of chat ID {}", fromSeq, toSeq, chatId);
+		if (fromSeq < 1 || toSeq < fromSeq) {
+			throw new IllegalArgumentException("Invalid sequence range: " + fromSeq + " to " + toSeq);
+		}
+		List<Message> oldestFirst = this.messageRepository.findMessagesInSeqRange(
+				chatId, fromSeq, toSeq, Limit.of(MessageConstants.MAX_PAGE_SIZE + 1));
+		if (oldestFirst.size() < toSeq - fromSeq + 1) {
+			oldestFirst = merge(oldestFirst, this.messageArchiveService.findMessagesInRange(
+					chatId, fromSeq, toSeq, MessageConstants.MAX_PAGE_SIZE + 1),
+					Comparator.comparing(Message::getSeq), MessageConstants.MAX_PAGE_SIZE + 1);
+		}
+		final boolean truncated = oldestFirst.size() > MessageConstants.MAX_PAGE_SIZE;
+		List<Message> messages = trim(oldestFirst, MessageConstants.MAX_PAGE_SIZE);
+		return this.toPage(messages, fromSeq > 1, truncated);
+	}
 
-	    Chat chat = this.chatRepository.findById(chatId)
-	            .orElseThrow(() -> {
-	                log.error("Chat not found, ID: {}", chatId);
-	                return new EntityNotFoundException("Chat not found, ID: " + chatId);
-	            });
+	/**
+	 * Maps an oldest-to-newest list of messages to a {@link MessagePageResponse}.
+	 * Cursors are only emitted in the directions where more messages exist.
+	 */
+	private MessagePageResponse toPage(List<Message> messages, boolean hasOlder, boolean hasNewer) {
+		String prevCursor = null;
+		String nextCursor = null;
+		if (!messages.isEmpty()) {
+			prevCursor = hasOlder ? MessageCursor.of(messages.get(0)).encode() : null;
+			nextCursor = hasNewer ? MessageCursor.of(messages.get(messages.size() - 1)).encode() : null;
+		}
+		return MessagePageResponse.builder()
+				.messages(messages.stream().map(this.mapper::toMessageResponse).toList())
+				.prevCursor(prevCursor)
+				.nextCursor(nextCursor)
+				.build();
+	}
 
-	    final String recipientId = this.getRecipientId(chat, authentication);
-	    log.debug("Authenticated user is considered recipient with ID: {}", recipientId);
+	/**
+	 * Completes newest-first messages from the table with archived ones, when the table ran
+	 * out of messages before the start of the chat.
+	 */
+	private List<Message> withArchivedOlder(String chatId, List<Message> newestFirst, long beforeSeq, int limit) {
+		if (newestFirst.size() >= limit || startsChat(newestFirst)) {
+			return newestFirst;
+		}
+		return merge(newestFirst, this.messageArchiveService.findMessagesBefore(chatId, beforeSeq, limit),
+				Comparator.comparing(Message::getSeq).reversed(), limit);
+	}
 
-	    this.messageRepository.setMessagesToSeenByChatId(chatId, MessageState.SEEN);
+	/**
+	 * Completes oldest-first messages from the table with archived ones. Only cursors in an
+	 * archived month find segments after them: the segment index is not read for the others,
+	 * which are nearly all of them.
+	 */
+	private List<Message> withArchivedNewer(String chatId, List<Message> oldestFirst, MessageCursor cursor, int limit) {
+		if (!this.messageArchiveService.mayHoldMessagesSince(cursor.newerSince())) {
+			return oldestFirst;
+		}
+		return merge(oldestFirst, this.messageArchiveService.findMessagesAfter(chatId, cursor.getSeq(), limit),
+				Comparator.comparing(Message::getSeq), limit);
+	}
 
-	    log.info("Messages set to SEEN for chat ID: {} and recipient ID: {}", chatId, recipientId);
+	// Sequence numbers of the last archived month and the first one in the table may interleave
+	private static List<Message> merge(List<Message> messages, List<Message> archived, Comparator<Message> order, int limit) {
+		if (archived.isEmpty()) {
+			return messages;
+		}
+		List<Message> merged = new ArrayList<>(messages);
+		merged.addAll(archived);
+		merged.sort(order);
+		return trim(merged, limit);
+	}
 
-	    // Build notification
-		Notification notification = Notification.builder()
-				.chatId(chat.getId())
-				.type(NotificationType.MESSAGE)
-				.receiverId(getSenderId(chat, authentication))
-				.senderId(recipientId)
-				.build();
+	// Whether the oldest of these newest-first messages is the first message of its chat
+	private static boolean startsChat(List<Message> newestFirst) {
+		return !newestFirst.isEmpty() && newestFirst.get(newestFirst.size() - 1).getSeq() == 1;
+	}
 
-		log.info("Built notification to be sent to user {}: {}", recipientId, notification);
+	private static List<Message> trim(List<Message> messages, int size) {
+		return messages.size() > size ? messages.subList(0, size) : messages;
+	}
 
-		// Send notification
-		this.notificationService.sendNotification(recipientId, notification);
+	private static List<Message> reverse(List<Message> messages) {
+		List<Message> reversed = new ArrayList<>(messages);
+		Collections.reverse(reversed);
+		return reversed;
+	}
+	
+	/**
+	 * Writes every message of a chat to the given stream as NDJSON, one
+	 * {@link MessageResponse} per line, oldest first.
+	 * <p>
+	 * Messages are read through a server-side cursor and detached once written, so memory
+	 * use does not depend on the size of the chat.
+	 * </p>
+	 *
+	 * @param chatId the ID of the chat to export
+	 * @param authentication the current authenticated user
+	 * @param outputStream the stream the messages are written to, left open
+	 * @return the number of exported messages
+	 * @throws EntityNotFoundException if the chat does not exist
+	 * @throws AccessDeniedException if the user does not participate in the chat
+	 * @throws IOException if writing to the stream fails
+	 */
+	@Transactional(readOnly = true)
+	public long exportChatMessages(String chatId, Authentication authentication, OutputStream outputStream) throws IOException {
+		log.info("Exporting messages of chat ID {}", chatId);
+		Chat chat = this.chatRepository.findById(chatId).orElseThrow(() -> {
+			log.error("Chat not found, ID: {}", chatId);
+			return new EntityNotFoundException("Chat not found, ID: " + chatId);
+		});
+		final String userId = authentication.getName();
+		if (!chat.getSender().getId().equals(userId) && !chat.getRecipient().getId().equals(userId)) {
+			log.warn("User {} tried to export chat {}", userId, chatId);
+			throw new AccessDeniedException("User is not a participant of chat " + chatId);
+		}
+
+		long exported = 0;
+		// Archived months first, then the ones still in the table
+		try (Stream<Message> messages = Stream.concat(
+						this.messageArchiveService.streamMessages(chat),
+						this.messageRepository.streamMessagesByChatId(chatId));
+				SequenceWriter writer = this.objectMapper.writer()
+						.withRootValueSeparator("\n")
+						.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+						.writeValues(outputStream)) {
+			Iterator<Message> iterator = messages.iterator();
+			while (iterator.hasNext()) {
+				Message message = iterator.next();
+				writer.write(this.mapper.toMessageResponse(message));
+				// Keep the persistence context from growing with the chat
+				if (this.entityManager.contains(message)) {
+					this.entityManager.detach(message);
+				}
+				exported++;
+			}
+		}
+		log.info("Exported {} messages of chat ID {}", exported, chatId);
+		return exported;
+	}
+	
+	/**
+	 * Searches the text messages of the chats the authenticated user participates in.
+	 * <p>
+	 * The query uses web search syntax ({@code "quoted phrase"}, {@code or}, {@code -excluded}).
+	 * Hits are returned best first, each with the chat it belongs to and a highlighted
+	 * snippet; use the returned {@code nextCursor} to fetch the following page.
+	 * </p>
+	 *
+	 * @param query the search terms
+	 * @param chatId optional chat to search in, all the chats of the user otherwise
+	 * @param size the requested page size, clamped to {@link MessageConstants#MAX_SEARCH_PAGE_SIZE}
+	 * @param cursor optional cursor returned by the previous page
+	 * @param authentication the current authenticated user
+	 * @return a {@link MessageSearchResponse} with the hits and the next cursor
+	 * @throws IllegalArgumentException if the query is blank or the cursor is malformed
+	 */
+	@Transactional(readOnly = true)
+	public MessageSearchResponse searchMessages(String query, String chatId, int size, String cursor, Authentication authentication) {
+		if (query == null || query.isBlank()) {
+			throw new IllegalArgumentException("Search query is required");
+		}
+		final String userId = authentication.getName();
+		final int pageSize = Math.max(1, Math.min(size, MessageConstants.MAX_SEARCH_PAGE_SIZE));
+		final SearchCursor from = cursor != null ? SearchCursor.decode(cursor) : SearchCursor.FIRST;
+		log.info("Searching messages of user {} (chatId={}, size={})", userId, chatId, pageSize);
+
+		// One extra row tells us whether there is a next page
+		List<MessageSearchHit> hits = chatId != null
+				? this.messageRepository.searchMessagesInChat(query, userId, chatId, from.getRank(), from.getId(), Limit.of(pageSize + 1))
+				: this.messageRepository.searchMessages(query, userId, from.getRank(), from.getId(), Limit.of(pageSize + 1));
+		final boolean hasNext = hits.size() > pageSize;
+		hits = hits.size() > pageSize ? hits.subList(0, pageSize) : hits;
+
+		// Chat context for the page in a single query
+		Map<String, Chat> chats = this.chatRepository.findAllById(hits.stream().map(MessageSearchHit::getChatId).collect(Collectors.toSet()))
+				.stream()
+				.collect(Collectors.toMap(Chat::getId, Function.identity()));
+
+		List<MessageSearchResult> results = hits.stream()
+				.map(hit -> MessageSearchResult.builder()
+						.messageId(hit.getId())
+						.chatId(hit.getChatId())
+						.chatName(chats.get(hit.getChatId()).getChatName(userId))
+						.senderId(hit.getSenderId())
+						.type(hit.getType())
+						.createdAt(hit.getCreatedAt())
+						.snippet(hit.getSnippet())
+						.rank(hit.getRank())
+						.build())
+				.toList();
+
+		log.info("Found {} search hits for user {}", results.size(), userId);
+		return MessageSearchResponse.builder()
+				.results(results)
+				.nextCursor(hasNext ? SearchCursor.of(hits.get(hits.size() - 1)).encode() : null)
+				.build();
+	}
+	
+	/**
+	 * Marks one or several chats as read by the authenticated user.
+	 *
+	 * <p>No message row is rewritten: the read watermark of the user in each chat is moved
+	 * to the last message of the chat and their unread counter is reset, all in a single
+	 * UPDATE. The SEEN state of messages is derived from that watermark.</p>
+	 *
+	 * <p>The other participant of every chat is notified with a {@code SEEN} notification.</p>
+	 *
+	 * @param chatIds the IDs of the chats to mark as read
+	 * @param authentication the current authenticated user, the reader
+	 * @throws EntityNotFoundException if any of the chats is not found
+	 * @throws AccessDeniedException if the user does not participate in any of the chats
+	 */
+	@Transactional
+	public void setMessagesToSeen(List<String> chatIds, Authentication authentication) {
+	    log.info("Setting messages to SEEN for chat IDs: {}", chatIds);
+	    final String readerId = authentication.getName();
+
+	    List<Chat> chats = this.chatRepository.findAllById(chatIds);
+	    Set<String> foundIds = chats.stream().map(Chat::getId).collect(Collectors.toSet());
+	    chatIds.stream()
+	    		.filter(chatId -> !foundIds.contains(chatId))
+	    		.findFirst()
+	    		.ifPresent(chatId -> {
+	    			log.error("Chat not found, ID: {}", chatId);
+	    			throw new EntityNotFoundException("Chat not found, ID: " + chatId);
+	    		});
+	    chats.stream()
+	    		.filter(chat -> !chat.getSender().getId().equals(readerId) && !chat.getRecipient().getId().equals(readerId))
+	    		.findFirst()
+	    		.ifPresent(chat -> {
+	    			log.warn("User {} is not a participant of chat {}", readerId, chat.getId());
+	    			throw new AccessDeniedException("User is not a participant of chat " + chat.getId());
+	    		});
+
+	    final int updated = this.chatRepository.markChatsAsRead(chatIds, readerId, LocalDateTime.now());
+	    this.evictCachedChats(chatIds);
+	    log.info("{} chats marked as read by user {}", updated, readerId);
+
+	    for (Chat chat : chats) {
+	    	final String recipientId = this.getRecipientId(chat, authentication);
+	    	// Build notification
+	    	Notification notification = Notification.builder()
+	    			.chatId(chat.getId())
+	    			// Read watermark: every message up to this one has been seen
+	    			.messageId(chat.getLastMessageId())
+	    			.seq(chat.getLastMessageSeq())
+	    			.type(NotificationType.SEEN)
+	    			.receiverId(recipientId)
+	    			.senderId(readerId)
+	    			.build();
+
+	    	log.info("Built notification to be sent to user {}: {}", recipientId, notification);
+
+	    	// Send notification
+	    	this.notificationService.sendNotification(recipientId, notification);
+	    }
 	}
 	
 	/**
 	 * Handles uploading a media file as a message within a chat.
 	 * 
-	 * <p>This method saves the uploaded file via the FileService, creates a new message
-	 * associated with the chat, sets the message type to IMAGE, and saves it to the database.</p>
+	 * <p>This method stores the uploaded file in the media store via the FileService (identical
+	 * files are shared across messages), creates a new message associated with the chat,
+	 * derives the message type (IMAGE, AUDIO or VIDEO) from the MIME type sniffed from the
+	 * file content, and saves it to the database. The receiver is notified with a media
+	 * reference and, for images, a tiny inline preview that is also kept on the message as its
+	 * placeholder. The thumbnail of images is rendered in the background after commit.</p>
 	 * 
 	 * @param chatId the ID of the chat to which the media message belongs
 	 * @param file the media file uploaded
 	 * @param authentication the current authenticated user, used to determine sender and recipient
 	 * @throws EntityNotFoundException if the chat with the given ID does not exist
 	 */
+	@Transactional
 	public void uploadMediaMessage(String chatId, MultipartFile file, Authentication authentication) {
 	    log.info("Uploading media message to chat ID: {}", chatId);
-
+	    this.saveMediaMessage(chatId, authentication, () -> this.fileService.saveFile(file));
+	}
+	
+	/**
+	 * Saves a media message whose file has already been assembled in the staging folder,
+	 * e.g. by a chunked upload session. Same behaviour as
+	 * {@link #uploadMediaMessage(String, MultipartFile, Authentication)}; the staged file is
+	 * moved into the media store, never copied.
+	 *
+	 * @param chatId the ID of the chat to which the media message belongs
+	 * @param stagedFile the assembled file, consumed by this method
+	 * @param mimeType the MIME type declared by the client, used when it cannot be sniffed
+	 * @param authentication the current authenticated user, used to determine sender and recipient
+	 * @throws EntityNotFoundException if the chat with the given ID does not exist
+	 */
+	@Transactional
+	public void uploadMediaMessage(String chatId, Path stagedFile, String mimeType, Authentication authentication) {
+	    log.info("Saving staged media message to chat ID: {}", chatId);
+	    this.saveMediaMessage(chatId, authentication, () -> this.fileService.saveFile(stagedFile, mimeType));
+	}
+	
+	private void saveMediaMessage(String chatId, Authentication authentication, Supplier<StoredMedia> storage) {
 	    Chat chat = this.chatRepository.findById(chatId)
 	        .orElseThrow(() -> {
 	            log.error("Chat not found, ID: {}", chatId);
@@ -166,37 +663,151 @@ public class MessageService {
 	    final String recipientId = this.getRecipientId(chat, authentication);
 	    log.debug("Determined sender ID: {} and recipient ID: {}", senderId, recipientId);
 
-	    final String filePath = this.fileService.saveFile(file, senderId);
-	    log.info("File saved at path: {}", filePath);
+	    final StoredMedia media = storage.get();
+	    final String blobKey = media.getKey();
+	    log.info("File stored as blob: {}", blobKey);
 
 	    Message message = new Message();
 	    message.setChat(chat);
 	    message.setSenderId(senderId);
 	    message.setReceiverId(recipientId);
-	    message.setType(MessageType.IMAGE);
-	    message.setMediaFilePath(filePath);
+	    // Sniffed from the content, not trusted from the client
+	    message.setType(MessageType.fromMimeType(media.getMimeType()));
+	    message.setMediaBlobKey(blobKey);
+	    message.setMediaMimeType(media.getMimeType());
+	    message.setMediaSize(media.getSize());
 	    // SENT state by default
 	    message.setState(MessageState.SENT);
 
+	    this.assignSeqs(chat, List.of(message));
 	    this.messageRepository.save(message);
+	    this.updateChatSummary(chat, List.of(message));
 	    log.info("Media message saved successfully for chat ID: {} from sender ID: {} to recipient ID: {}", chatId, senderId, recipientId);
 	    
-	    // Build notification
+	    // Build notification: media reference plus a tiny preview, never the file itself
 		Notification notification = Notification.builder()
 				.chatId(chat.getId())
-				.type(NotificationType.IMAGE)
-				.messageType(MessageType.IMAGE)
+				.messageId(message.getId())
+				.seq(message.getSeq())
+				.type(NotificationType.fromMessageType(message.getType()))
+				.messageType(message.getType())
 				.senderId(senderId)
 				.receiverId(recipientId)
-				.media(FileUtils.readFileFromLocation(filePath))
+				.mediaUrl(this.mapper.toMediaUrl(message))
+				.mediaMimeType(message.getMediaMimeType())
+				.mediaSize(message.getMediaSize())
 				.build();
 
+		if (message.getType() == MessageType.IMAGE) {
+			this.mediaReader.read(this.fileService.resolve(blobKey))
+					.flatMap(image -> ImageUtils.createPreview(image, MessageConstants.NOTIFICATION_PREVIEW_SIZE))
+					.ifPresent(preview -> {
+						// Same preview kept as the placeholder of the message in history views
+						message.setMediaWidth(preview.getWidth());
+						message.setMediaHeight(preview.getHeight());
+						message.setMediaPlaceholder(preview.getPreview());
+						notification.setMediaWidth(preview.getWidth());
+						notification.setMediaHeight(preview.getHeight());
+						notification.setPreview(preview.getPreview());
+					});
+			// Thumbnail rendered in the background once the message is committed
+			this.eventPublisher.publishEvent(new MediaUploadedEvent(message.getId(), message.getCreatedDate(), blobKey));
+		}
+
 		log.info("Built notification to be sent to user {}: {}", recipientId, notification);
 
 		// Send notification
 		this.notificationService.sendNotification(recipientId, notification);
 	}
 	
+	/**
+	 * Retrieves a media message, checking that the authenticated user takes part in it.
+	 *
+	 * @param messageId the ID of the message holding the media
+	 * @param authentication the current authenticated user
+	 * @return the {@link Message} with an attached media file
+	 * @throws EntityNotFoundException if the message does not exist or has no media
+	 * @throws AccessDeniedException if the user is neither the sender nor the receiver
+	 */
+	@Transactional(readOnly = true)
+	public Message findMediaMessage(Long messageId, Authentication authentication) {
+		Message message = this.messageRepository.findById(messageId)
+				.or(() -> this.messageArchiveService.findMediaMessage(messageId))
+				.filter(m -> m.getMediaBlobKey() != null)
+				.orElseThrow(() -> {
+					log.error("Media message not found, ID: {}", messageId);
+					return new EntityNotFoundException("Media message not found, ID: " + messageId);
+				});
+
+		final String userId = authentication.getName();
+		if (!userId.equals(message.getSenderId()) && !userId.equals(message.getReceiverId())) {
+			log.warn("User {} tried to access media of message {}", userId, messageId);
+			throw new AccessDeniedException("User is not a participant of message " + messageId);
+		}
+		return message;
+	}
+	
+	/**
+	 * Numbers new messages of a chat with its next sequence numbers, in list order. Must be
+	 * called before the messages are saved, within the transaction that saves them.
+	 *
+	 * @param chat the chat the messages belong to
+	 * @param messages the new messages, oldest first
+	 */
+	private void assignSeqs(Chat chat, List<Message> messages) {
+		long seq = this.chatRepository.reserveMessageSeqs(chat.getId(), messages.size()) - messages.size();
+		for (Message message : messages) {
+			message.setSeq(++seq);
+		}
+	}
+	
+	/**
+	 * Updates the denormalized summary of a chat after messages were saved: last message
+	 * ID, preview, type and time, plus the unread counters of both participants.
+	 * Must be called within the transaction that saved the messages.
+	 *
+	 * @param chat the chat the messages belong to
+	 * @param messages the saved messages, oldest first
+	 */
+	private void updateChatSummary(Chat chat, List<Message> messages) {
+		Message lastMessage = messages.get(messages.size() - 1);
+		String preview = lastMessage.getContent();
+		if (preview != null && preview.length() > ChatConstants.LAST_MESSAGE_PREVIEW_LENGTH) {
+			preview = preview.substring(0, ChatConstants.LAST_MESSAGE_PREVIEW_LENGTH);
+		}
+		final long senderUnreadIncrement = messages.stream()
+				.filter(m -> m.getReceiverId().equals(chat.getSender().getId()))
+				.count();
+		this.chatRepository.updateLastMessage(
+				chat.getId(),
+				lastMessage.getId(),
+				preview,
+				lastMessage.getType().name(),
+				lastMessage.getCreatedDate(),
+				senderUnreadIncrement,
+				messages.size() - senderUnreadIncrement,
+				LocalDateTime.now());
+		this.evictCachedChats(List.of(chat.getId()));
+	}
+	
+	/**
+	 * Evicts chats whose summary was updated with a native query from the second-level cache,
+	 * now and again once the transaction commits: a concurrent reader may cache the old row in
+	 * between.
+	 *
+	 * @param chatIds the IDs of the updated chats
+	 */
+	private void evictCachedChats(Collection<String> chatIds) {
+		final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
+		chatIds.forEach(chatId -> cache.evict(Chat.class, chatId));
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				chatIds.forEach(chatId -> cache.evict(Chat.class, chatId));
+			}
+		});
+	}
+	
 	/**
 	 * Returns the sender ID of the chat relative to the authenticated user.
 	 * If the authenticated user is the sender, returns the sender's ID;
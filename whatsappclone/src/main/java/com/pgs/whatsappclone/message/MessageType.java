@@ -5,5 +5,24 @@ public enum MessageType {
 	TEXT,
 	IMAGE,
 	AUDIO,
-	VIDEO
+	VIDEO;
+	
+	/**
+	 * Resolves the media message type from a MIME type such as {@code image/png}.
+	 * Unknown or missing MIME types default to {@link #IMAGE}.
+	 *
+	 * @param mimeType the MIME type of the uploaded file
+	 * @return the matching {@link MessageType}
+	 */
+	public static MessageType fromMimeType(String mimeType) {
+		if (mimeType != null) {
+			if (mimeType.startsWith("audio/")) {
+				return AUDIO;
+			}
+			if (mimeType.startsWith("video/")) {
+				return VIDEO;
+			}
+		}
+		return IMAGE;
+	}
 }
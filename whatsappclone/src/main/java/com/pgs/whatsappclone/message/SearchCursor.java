@@ -0,0 +1,64 @@
+package com.pgs.whatsappclone.message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque keyset cursor pointing at a search hit.
+ * <p>
+ * Hits are ordered by {@code (rank, id)} descending, so the next page is fetched with a
+ * range predicate on that pair instead of an {@code OFFSET} scan.
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCursor {
+
+	private static final String SEPARATOR = "|";
+
+	// Before the first hit: every rank is lower than infinity
+	public static final SearchCursor FIRST = new SearchCursor(Float.POSITIVE_INFINITY, Long.MAX_VALUE);
+
+	private final Float rank;
+	private final Long id;
+
+	public static SearchCursor of(MessageSearchHit hit) {
+		return new SearchCursor(hit.getRank(), hit.getId());
+	}
+
+	/**
+	 * Encodes this cursor as a URL-safe Base64 string.
+	 *
+	 * @return the encoded cursor
+	 */
+	public String encode() {
+		// Float.toString round-trips exactly, the same hit compares equal on the next request
+		final String raw = this.rank + SEPARATOR + this.id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor previously produced by {@link #encode()}.
+	 *
+	 * @param cursor the encoded cursor
+	 * @return the decoded {@link SearchCursor}
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public static SearchCursor decode(String cursor) {
+		try {
+			final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			final int separatorIndex = raw.lastIndexOf(SEPARATOR);
+			if (separatorIndex == -1) {
+				throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+			}
+			return new SearchCursor(
+					Float.valueOf(raw.substring(0, separatorIndex)),
+					Long.valueOf(raw.substring(separatorIndex + 1)));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid search cursor: " + cursor, e);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.pgs.whatsappclone.notification;
 
+import java.util.List;
+
 import com.pgs.whatsappclone.message.MessageType;
 
 import lombok.AllArgsConstructor;
@@ -16,11 +18,23 @@ import lombok.Setter;
 public class Notification {
 
 	private String chatId;
+	private Long messageId;
+	// Sequence number of the message in the chat, to detect missed notifications
+	private Long seq;
 	private String content;
 	private String receiverId;
 	private String senderId;
 	private String chatName;
 	private MessageType messageType;
 	private NotificationType type;
-	private byte [] media;
+	// Media reference only, the file itself is fetched from mediaUrl
+	private String mediaUrl;
+	private String mediaMimeType;
+	private Long mediaSize;
+	private Integer mediaWidth;
+	private Integer mediaHeight;
+	// Tiny inline placeholder (images only)
+	private byte [] preview;
+	// Grouped notifications (BATCH only)
+	private List<Notification> notifications;
 }
@@ -1,8 +1,13 @@
 package com.pgs.whatsappclone.notification;
 
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import com.pgs.whatsappclone.ws.BrokerMode;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,11 +18,15 @@ public class NotificationService {
 
 	private final SimpMessagingTemplate messagingTemplate;
 	
+	@Value("${application.websocket.broker.mode:simple}")
+	private BrokerMode brokerMode;
+	
 	/**
 	 * Sends a WebSocket notification to a specific user.
 	 *
 	 * <p>This method uses Spring's {@link org.springframework.messaging.simp.SimpMessagingTemplate}
-	 * to send a message to a user-specific destination (e.g., "/user/{userId}/chat").</p>
+	 * to send a message to a user-specific destination (e.g., "/user/{userId}/chat" with the simple
+	 * broker, "/user/queue/chat" when relaying to an external broker).</p>
 	 *
 	 * @param userId       the ID of the user to whom the notification will be sent
 	 * @param notification the notification payload to send
@@ -26,7 +35,34 @@ public class NotificationService {
 		log.info("Sending WS notification to {} with payload {}", userId, notification);
 		this.messagingTemplate.convertAndSendToUser(
 				userId, // User
-				"/chat", // Destination
+				this.brokerMode.getChatDestination(), // Destination
 				notification); // Object
 	}
+	
+	/**
+	 * Sends several notifications to the same user in a single WebSocket frame.
+	 * <p>A single notification is sent as is; more are wrapped in a {@link NotificationType#BATCH}
+	 * notification, in the given order.</p>
+	 *
+	 * @param userId        the ID of the user to whom the notifications will be sent
+	 * @param notifications the notifications to send
+	 */
+	public void sendNotifications(String userId, List<Notification> notifications) {
+		if (notifications.isEmpty()) {
+			return;
+		}
+		if (notifications.size() == 1) {
+			this.sendNotification(userId, notifications.get(0));
+			return;
+		}
+		log.info("Sending {} grouped WS notifications to {}", notifications.size(), userId);
+		this.messagingTemplate.convertAndSendToUser(
+				userId,
+				this.brokerMode.getChatDestination(),
+				Notification.builder()
+						.receiverId(userId)
+						.type(NotificationType.BATCH)
+						.notifications(notifications)
+						.build());
+	}
 }
@@ -1,10 +1,29 @@
 package com.pgs.whatsappclone.notification;
 
+import com.pgs.whatsappclone.message.MessageType;
+
 public enum NotificationType {
 
 	SEEN,
 	MESSAGE,
 	IMAGE,
 	AUDIO,
-	VIDEO
+	VIDEO,
+	// Several notifications for the same receiver in one frame
+	BATCH;
+	
+	/**
+	 * Returns the notification type used to announce a message of the given type.
+	 *
+	 * @param messageType the type of the message
+	 * @return {@link #MESSAGE} for text messages, the matching media type otherwise
+	 */
+	public static NotificationType fromMessageType(MessageType messageType) {
+		return switch (messageType) {
+			case IMAGE -> IMAGE;
+			case AUDIO -> AUDIO;
+			case VIDEO -> VIDEO;
+			default -> MESSAGE;
+		};
+	}
 }
@@ -0,0 +1,35 @@
+package com.pgs.whatsappclone.presence;
+
+import java.security.Principal;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import lombok.RequiredArgsConstructor;
+
+// Feeds the presence registry from the STOMP session lifecycle
+@Component
+@RequiredArgsConstructor
+public class PresenceEventListener {
+
+	private final PresenceService presenceService;
+
+	@EventListener
+	public void onConnected(SessionConnectedEvent event) {
+		Principal user = event.getUser();
+		if (user != null) {
+			this.presenceService.connected(user.getName(), SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders()));
+		}
+	}
+
+	@EventListener
+	public void onDisconnect(SessionDisconnectEvent event) {
+		Principal user = event.getUser();
+		if (user != null) {
+			this.presenceService.disconnected(user.getName(), event.getSessionId());
+		}
+	}
+}
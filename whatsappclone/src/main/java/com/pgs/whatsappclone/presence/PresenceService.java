@@ -0,0 +1,159 @@
+package com.pgs.whatsappclone.presence;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pgs.whatsappclone.user.User;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory registry of connected users, fed by STOMP session events.
+ * <p>
+ * A user is online while at least one of their WebSocket sessions is open, on this node
+ * or, in relay mode, on any node sharing the user registry. Activity
+ * (connect, disconnect, heartbeats and frames) only touches an in-memory map;
+ * {@code users.last_seen} is written once the last session of a user is closed, in periodic
+ * JDBC batches, and for every known user on shutdown. Connected users are never written, so
+ * their cached {@link User} stays in the second-level cache.
+ * </p>
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+	private static final String UPDATE_LAST_SEEN = "UPDATE users SET last_seen = ? WHERE id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	// Also knows the users connected to other nodes when relaying to an external broker
+	private final SimpUserRegistry userRegistry;
+	// Plain JDBC bypasses Hibernate, flushed users are evicted from the second-level cache
+	private final EntityManagerFactory entityManagerFactory;
+
+	// User ID -> open WebSocket session IDs
+	private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+	// User ID -> last activity not yet written to the database
+	private final Map<String, LocalDateTime> pendingLastSeen = new ConcurrentHashMap<>();
+	// Users whose last session was closed, written by the next flush
+	private final Set<String> disconnectedUsers = ConcurrentHashMap.newKeySet();
+
+	public PresenceService(JdbcTemplate jdbcTemplate, @Lazy SimpUserRegistry userRegistry, EntityManagerFactory entityManagerFactory) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.userRegistry = userRegistry;
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	public void connected(String userId, String sessionId) {
+		log.debug("User {} connected with session {}", userId, sessionId);
+		this.sessionsByUser.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(sessionId);
+		this.pendingLastSeen.put(userId, LocalDateTime.now());
+	}
+
+	public void disconnected(String userId, String sessionId) {
+		log.debug("User {} disconnected session {}", userId, sessionId);
+		this.pendingLastSeen.put(userId, LocalDateTime.now());
+		// Atomically drop the user once its last session is gone
+		this.sessionsByUser.computeIfPresent(userId, (key, sessions) -> {
+			sessions.remove(sessionId);
+			if (sessions.isEmpty()) {
+				this.disconnectedUsers.add(userId);
+				return null;
+			}
+			return sessions;
+		});
+	}
+
+	/**
+	 * Records activity of a connected user (frames and heartbeats), in memory only.
+	 *
+	 * @param userId the ID of the user
+	 */
+	public void touch(String userId) {
+		// A frame racing the disconnect of its session must not leave an entry nobody writes
+		if (this.sessionsByUser.containsKey(userId)) {
+			this.pendingLastSeen.put(userId, LocalDateTime.now());
+		}
+	}
+
+	public boolean isOnline(String userId) {
+		return this.sessionsByUser.containsKey(userId) || this.userRegistry.getUser(userId) != null;
+	}
+
+	/**
+	 * Returns the most recent activity of the user, preferring the not yet written value.
+	 *
+	 * @param userId the ID of the user
+	 * @param persistedLastSeen the value currently stored in the database
+	 * @return the latest known last seen time
+	 */
+	public LocalDateTime getLastSeen(String userId, LocalDateTime persistedLastSeen) {
+		LocalDateTime pending = this.pendingLastSeen.get(userId);
+		return pending != null ? pending : persistedLastSeen;
+	}
+
+	/**
+	 * Writes the {@code lastSeen} of the users who disconnected since the previous flush in a
+	 * single JDBC batch. Users who reconnected meanwhile are kept in memory.
+	 */
+	@Scheduled(fixedDelayString = "${application.presence.flush-interval:30s}")
+	public void flushLastSeen() {
+		List<String> userIds = new ArrayList<>();
+		for (String userId : this.disconnectedUsers) {
+			this.disconnectedUsers.remove(userId);
+			if (!this.sessionsByUser.containsKey(userId)) {
+				userIds.add(userId);
+			}
+		}
+		this.write(userIds);
+	}
+
+	/**
+	 * Writes the {@code lastSeen} of every known user, connected or not, before the node stops.
+	 */
+	@PreDestroy
+	public void flushAllLastSeen() {
+		this.disconnectedUsers.clear();
+		this.write(new ArrayList<>(this.pendingLastSeen.keySet()));
+	}
+
+	private void write(List<String> userIds) {
+		List<Object[]> batch = new ArrayList<>();
+		for (String userId : userIds) {
+			LocalDateTime lastSeen = this.pendingLastSeen.remove(userId);
+			if (lastSeen != null) {
+				batch.add(new Object[] { Timestamp.valueOf(lastSeen), userId });
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			this.jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN, batch);
+			final Cache cache = this.entityManagerFactory.getCache();
+			batch.forEach(row -> cache.evict(User.class, row[1]));
+			log.debug("Flushed lastSeen of {} users", batch.size());
+		} catch (RuntimeException e) {
+			log.error("Failed to flush lastSeen of {} users", batch.size(), e);
+			// Put the values back for the next flush unless newer ones were recorded meanwhile
+			batch.forEach(row -> {
+				this.pendingLastSeen.putIfAbsent((String) row[1], ((Timestamp) row[0]).toLocalDateTime());
+				this.disconnectedUsers.add((String) row[1]);
+			});
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.pgs.whatsappclone.sync;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque position of a client in the stream of changes.
+ * <p>
+ * Changes are ordered by {@code (change time, id)}, the change time being the last
+ * modification date of a row or its creation date if it was never modified. Everything
+ * strictly after the checkpoint has not been delivered yet.
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public class SyncCheckpoint {
+
+	private static final String SEPARATOR = "|";
+
+	// Before any change: a client without checkpoint receives everything
+	public static final SyncCheckpoint INITIAL = new SyncCheckpoint(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+	private final LocalDateTime since;
+	private final Long messageId;
+
+	/**
+	 * Encodes this checkpoint as a URL-safe Base64 string.
+	 *
+	 * @return the encoded checkpoint
+	 */
+	public String encode() {
+		final String raw = this.since + SEPARATOR + this.messageId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a checkpoint previously produced by {@link #encode()}.
+	 *
+	 * @param checkpoint the encoded checkpoint
+	 * @return the decoded {@link SyncCheckpoint}
+	 * @throws IllegalArgumentException if the checkpoint is malformed
+	 */
+	public static SyncCheckpoint decode(String checkpoint) {
+		try {
+			final String raw = new String(Base64.getUrlDecoder().decode(checkpoint), StandardCharsets.UTF_8);
+			final int separatorIndex = raw.lastIndexOf(SEPARATOR);
+			if (separatorIndex == -1) {
+				throw new IllegalArgumentException("Invalid sync checkpoint: " + checkpoint);
+			}
+			return new SyncCheckpoint(
+					LocalDateTime.parse(raw.substring(0, separatorIndex)),
+					Long.valueOf(raw.substring(separatorIndex + 1)));
+		} catch (DateTimeParseException | IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid sync checkpoint: " + checkpoint, e);
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.pgs.whatsappclone.sync;
+
+public class SyncConstants {
+
+	public static final int DEFAULT_PAGE_SIZE = 200;
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	private SyncConstants() {
+	}
+}
@@ -0,0 +1,43 @@
+package com.pgs.whatsappclone.sync;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Sync")
+public class SyncController {
+
+	private final SyncService syncService;
+
+	/**
+	 * Retrieves the chats and messages created or changed since the client's checkpoint.
+	 * <p>
+	 * Call without checkpoint for a full sync, then with the returned checkpoint on every
+	 * reconnect. Keep calling while {@code hasMore} is true.
+	 * </p>
+	 *
+	 * @param checkpoint optional checkpoint returned by the previous sync
+	 * @param size the maximum number of messages to return
+	 * @param authentication the current authenticated user
+	 * @return a ResponseEntity containing the changes and the new checkpoint, with an HTTP 200 status
+	 */
+	@GetMapping
+	public ResponseEntity<SyncResponse> sync(
+			@RequestParam(name = "checkpoint", required = false) String checkpoint,
+			@RequestParam(name = "size", defaultValue = "" + SyncConstants.DEFAULT_PAGE_SIZE) int size,
+			Authentication authentication) {
+	    log.info("Received sync request from user: {}", authentication.getName());
+	    return ResponseEntity.ok(this.syncService.getChanges(checkpoint, size, authentication));
+	}
+}
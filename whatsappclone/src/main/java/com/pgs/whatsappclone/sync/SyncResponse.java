@@ -0,0 +1,29 @@
+package com.pgs.whatsappclone.sync;
+
+import java.util.List;
+
+import com.pgs.whatsappclone.chat.ChatResponse;
+import com.pgs.whatsappclone.message.MessageResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncResponse {
+
+	// Chats created or changed (summary, unread counters, read watermarks) since the checkpoint
+	private List<ChatResponse> chats;
+	// Messages created or changed since the checkpoint, oldest change first
+	private List<MessageResponse> messages;
+	// Checkpoint to send on the next call
+	private String checkpoint;
+	// True if more changes are pending: call again right away with the new checkpoint
+	private boolean hasMore;
+}
@@ -0,0 +1,128 @@
+package com.pgs.whatsappclone.sync;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pgs.whatsappclone.chat.ChatMapper;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.chat.ChatResponse;
+import com.pgs.whatsappclone.message.Message;
+import com.pgs.whatsappclone.message.MessageMapper;
+import com.pgs.whatsappclone.message.MessageRepository;
+import com.pgs.whatsappclone.message.MessageResponse;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SyncService {
+
+	// Order of the sync queries: change time, then ID
+	private static final Comparator<Message> CHANGE_ORDER = Comparator.comparing(SyncService::changeTime)
+			.thenComparing(Message::getId);
+
+	private final ChatRepository chatRepository;
+	private final MessageRepository messageRepository;
+	private final ChatMapper chatMapper;
+	private final MessageMapper messageMapper;
+
+	@Value("${application.sync.overlap:30s}")
+	private Duration overlap;
+
+	/**
+	 * Returns the chats and messages of the authenticated user created or changed since a
+	 * checkpoint, and the checkpoint to resume from.
+	 * <p>
+	 * Chats are range scans on the change time indexes of V10, messages two range scans, sent
+	 * and received, on the ones of V18, so the cost depends on the number of changes rather
+	 * than on the size of the history or the number of chats. Messages are paginated:
+	 * while {@code hasMore} is set the client should call again with the returned checkpoint.
+	 * </p>
+	 * <p>
+	 * Change times are taken when rows are written, not when transactions commit, so a change
+	 * stamped just before a sync may only become visible after it. No checkpoint is therefore
+	 * ever later than the start of the sync minus the configured overlap, on the last page
+	 * as on the others: the latest changes are sent again, delivery is at least once and
+	 * clients apply changes by ID. Pages made only of changes of the overlap window are read
+	 * again until they fall out of it.
+	 * </p>
+	 *
+	 * @param checkpoint the checkpoint returned by the previous sync, or {@code null} for a full sync
+	 * @param size the maximum number of messages to return, capped to {@link SyncConstants#MAX_PAGE_SIZE}
+	 * @param authentication the current authenticated user
+	 * @return the changes and the next checkpoint
+	 * @throws IllegalArgumentException if the checkpoint is malformed
+	 */
+	@Transactional(readOnly = true)
+	public SyncResponse getChanges(String checkpoint, int size, Authentication authentication) {
+		final LocalDateTime startedAt = LocalDateTime.now();
+		final String userId = authentication.getName();
+		final int pageSize = Math.max(1, Math.min(size, SyncConstants.MAX_PAGE_SIZE));
+		final SyncCheckpoint from = checkpoint != null ? SyncCheckpoint.decode(checkpoint) : SyncCheckpoint.INITIAL;
+		log.info("Synchronizing user {} since {}", userId, from.getSince());
+
+		List<ChatResponse> chats = this.chatRepository.findChatsChangedSince(userId, from.getSince())
+				.stream()
+				.map(chat -> this.chatMapper.toChatResponse(chat, userId))
+				.toList();
+
+		// One extra row tells us whether there is a next page
+		List<Message> messages = this.findMessagesChangedSince(userId, from, pageSize + 1);
+		final boolean hasMore = messages.size() > pageSize;
+		messages = hasMore ? messages.subList(0, pageSize) : messages;
+
+		// Changes stamped before the overlap window are committed: only those can be skipped.
+		// A checkpoint never moves back either
+		final LocalDateTime safeUntil = startedAt.minus(this.overlap);
+		final Message last = hasMore ? messages.get(messages.size() - 1) : null;
+		final SyncCheckpoint next;
+		if (last != null && !changeTime(last).isAfter(safeUntil)) {
+			next = new SyncCheckpoint(changeTime(last), last.getId());
+		} else {
+			next = safeUntil.isAfter(from.getSince()) ? new SyncCheckpoint(safeUntil, 0L) : from;
+		}
+
+		List<MessageResponse> messageResponses = messages.stream()
+				.map(this.messageMapper::toMessageResponse)
+				.toList();
+		log.info("Returning {} chats and {} messages changed for user {} (hasMore={})",
+				chats.size(), messageResponses.size(), userId, hasMore);
+		return SyncResponse.builder()
+				.chats(chats)
+				.messages(messageResponses)
+				.checkpoint(next.encode())
+				.hasMore(hasMore)
+				.build();
+	}
+
+	/**
+	 * Reads a page of the messages sent and of the messages received by the user, both in
+	 * change order, and keeps the first ones of the two.
+	 */
+	private List<Message> findMessagesChangedSince(String userId, SyncCheckpoint from, int limit) {
+		List<Message> sent = this.messageRepository.findSentMessagesChangedSince(
+				userId, from.getSince(), from.getMessageId(), Limit.of(limit));
+		List<Message> received = this.messageRepository.findReceivedMessagesChangedSince(
+				userId, from.getSince(), from.getMessageId(), Limit.of(limit));
+		return Stream.concat(sent.stream(), received.stream())
+				.sorted(CHANGE_ORDER)
+				.limit(limit)
+				.toList();
+	}
+
+	// Same expression as the sync queries and indexes
+	private static LocalDateTime changeTime(Message message) {
+		return message.getLastModifiedDate() != null ? message.getLastModifiedDate() : message.getCreatedDate();
+	}
+}
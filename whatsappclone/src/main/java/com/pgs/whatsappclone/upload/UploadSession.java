@@ -0,0 +1,105 @@
+package com.pgs.whatsappclone.upload;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.pgs.whatsappclone.common.BaseAuditingEntity;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedNativeQueries;
+import jakarta.persistence.NamedNativeQuery;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A resumable upload: the file is sent as numbered chunks, in any order, written at their
+ * offset of a staging file, and turned into a media message once every chunk arrived.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "upload_sessions")
+@NamedNativeQueries({
+	// Idempotent: a chunk sent twice is recorded once
+	@NamedNativeQuery(
+		name = UploadSessionConstants.ADD_CHUNK,
+		query = "INSERT INTO upload_session_chunks (session_id, chunk_index) VALUES (:sessionId, :chunkIndex) "
+				+ "ON CONFLICT DO NOTHING"
+	),
+	@NamedNativeQuery(
+		name = UploadSessionConstants.COUNT_CHUNKS,
+		query = "SELECT COUNT(*) FROM upload_session_chunks WHERE session_id = :sessionId"
+	)
+})
+@NamedQueries({
+	@NamedQuery(
+		name = UploadSessionConstants.EXTEND_EXPIRATION,
+		query = "UPDATE UploadSession s SET s.expiresAt = :expiresAt WHERE s.id = :sessionId"
+	),
+	@NamedQuery(
+		name = UploadSessionConstants.FIND_EXPIRED_SESSIONS,
+		query = "SELECT s FROM UploadSession s WHERE s.expiresAt < :now"
+	)
+})
+public class UploadSession extends BaseAuditingEntity {
+
+	@Id
+	private String id;
+
+	@Column(nullable = false)
+	private String chatId;
+
+	// Owner of the session, the sender of the message
+	@Column(nullable = false)
+	private String userId;
+
+	private String fileName;
+
+	private String mimeType;
+
+	@Column(nullable = false)
+	private long size;
+
+	@Column(nullable = false)
+	private int chunkSize;
+
+	@Column(nullable = false)
+	private int chunkCount;
+
+	// Pushed back on every chunk, stale sessions are garbage collected
+	@Column(nullable = false)
+	private LocalDateTime expiresAt;
+
+	// Written through ADD_CHUNK only, read for the session status
+	@ElementCollection
+	@CollectionTable(name = "upload_session_chunks", joinColumns = @JoinColumn(name = "session_id"))
+	@Column(name = "chunk_index")
+	private Set<Integer> receivedChunks = new HashSet<>();
+
+	/**
+	 * Returns the offset of a chunk in the assembled file.
+	 */
+	public long getChunkOffset(int chunkIndex) {
+		return (long) chunkIndex * this.chunkSize;
+	}
+
+	/**
+	 * Returns the expected length of a chunk, only the last one may be shorter.
+	 */
+	public long getChunkLength(int chunkIndex) {
+		return Math.min(this.chunkSize, this.size - this.getChunkOffset(chunkIndex));
+	}
+}
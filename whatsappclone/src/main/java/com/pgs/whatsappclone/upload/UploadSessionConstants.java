@@ -0,0 +1,13 @@
+package com.pgs.whatsappclone.upload;
+
+public class UploadSessionConstants {
+
+	public static final String ADD_CHUNK = "UploadSession.addChunk";
+	public static final String COUNT_CHUNKS = "UploadSession.countChunks";
+	public static final String EXTEND_EXPIRATION = "UploadSession.extendExpiration";
+	public static final String FIND_EXPIRED_SESSIONS = "UploadSession.findExpiredSessions";
+
+	private UploadSessionConstants() {
+
+	}
+}
@@ -0,0 +1,112 @@
+package com.pgs.whatsappclone.upload;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resumable upload protocol for large media:
+ * <ol>
+ *   <li>{@code POST /api/v1/uploads} opens a session and returns the chunk size.</li>
+ *   <li>{@code PUT /api/v1/uploads/{id}/chunks/{index}} sends each chunk, in any order, retried at will.</li>
+ *   <li>{@code GET /api/v1/uploads/{id}} lists the chunks received, to resume after a failure.</li>
+ *   <li>{@code POST /api/v1/uploads/{id}/complete} turns the file into a media message.</li>
+ * </ol>
+ */
+@RestController
+@RequestMapping("/api/v1/uploads")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Upload")
+public class UploadSessionController {
+
+	private final UploadSessionService uploadSessionService;
+
+	/**
+	 * Opens an upload session for a media message.
+	 *
+	 * @param request the chat, declared MIME type and total size of the file
+	 * @param authentication the current authenticated user
+	 * @return a ResponseEntity containing the new session and an HTTP 201 status
+	 */
+	@PostMapping
+	public ResponseEntity<UploadSessionResponse> createSession(@RequestBody UploadSessionRequest request, Authentication authentication) {
+	    log.info("Received request to open an upload session for chat ID: {}", request.getChatId());
+	    return ResponseEntity.status(HttpStatus.CREATED).body(this.uploadSessionService.createSession(request, authentication));
+	}
+
+	/**
+	 * Retrieves an upload session and the chunks received so far.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 * @return a ResponseEntity containing the session and an HTTP 200 status
+	 */
+	@GetMapping("/{session-id}")
+	public ResponseEntity<UploadSessionResponse> getSession(@PathVariable("session-id") String sessionId, Authentication authentication) {
+	    return ResponseEntity.ok(this.uploadSessionService.getSession(sessionId, authentication));
+	}
+
+	/**
+	 * Uploads one chunk of the file as the raw request body.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param chunkIndex the zero-based index of the chunk
+	 * @param request the HTTP request whose body is the chunk
+	 * @param authentication the current authenticated user
+	 * @throws IOException if the request body cannot be read
+	 */
+	@PutMapping(value = "/{session-id}/chunks/{chunk-index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void uploadChunk(
+			@PathVariable("session-id") String sessionId,
+			@PathVariable("chunk-index") int chunkIndex,
+			HttpServletRequest request,
+			Authentication authentication) throws IOException {
+	    log.debug("Received chunk {} of upload session {}", chunkIndex, sessionId);
+	    this.uploadSessionService.writeChunk(sessionId, chunkIndex, request.getInputStream(), authentication);
+	}
+
+	/**
+	 * Completes an upload session: the assembled file becomes a media message of the chat.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 */
+	@PostMapping("/{session-id}/complete")
+	@ResponseStatus(HttpStatus.CREATED)
+	public void completeSession(@PathVariable("session-id") String sessionId, Authentication authentication) {
+	    log.info("Received request to complete upload session {}", sessionId);
+	    this.uploadSessionService.completeSession(sessionId, authentication);
+	}
+
+	/**
+	 * Cancels an upload session.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 */
+	@DeleteMapping("/{session-id}")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public void abortSession(@PathVariable("session-id") String sessionId, Authentication authentication) {
+	    log.info("Received request to abort upload session {}", sessionId);
+	    this.uploadSessionService.abortSession(sessionId, authentication);
+	}
+}
@@ -0,0 +1,33 @@
+package com.pgs.whatsappclone.upload;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+	// Native INSERT ... ON CONFLICT DO NOTHING, safe for concurrent and repeated chunks
+	// Declared table: without it Hibernate clears the whole second-level cache after the query
+	@Query(name = UploadSessionConstants.ADD_CHUNK, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "upload_session_chunks"))
+	@Modifying
+	void addChunk(@Param("sessionId") String sessionId, @Param("chunkIndex") int chunkIndex);
+
+	@Query(name = UploadSessionConstants.COUNT_CHUNKS, nativeQuery = true)
+	long countChunks(@Param("sessionId") String sessionId);
+
+	@Query(name = UploadSessionConstants.EXTEND_EXPIRATION)
+	@Modifying
+	int extendExpiration(@Param("sessionId") String sessionId, @Param("expiresAt") LocalDateTime expiresAt);
+
+	@Query(name = UploadSessionConstants.FIND_EXPIRED_SESSIONS)
+	List<UploadSession> findExpiredSessions(@Param("now") LocalDateTime now);
+}
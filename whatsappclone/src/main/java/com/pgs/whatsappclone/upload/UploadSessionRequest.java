@@ -0,0 +1,22 @@
+package com.pgs.whatsappclone.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionRequest {
+
+	private String chatId;
+	private String fileName;
+	// Declared by the client, the stored type is sniffed from the content
+	private String mimeType;
+	// Total size of the file, in bytes
+	private long size;
+}
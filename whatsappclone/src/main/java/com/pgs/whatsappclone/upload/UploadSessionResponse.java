@@ -0,0 +1,28 @@
+package com.pgs.whatsappclone.upload;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionResponse {
+
+	private String id;
+	private String chatId;
+	private long size;
+	// Every chunk but the last one must be exactly this long
+	private int chunkSize;
+	private int chunkCount;
+	// Indexes already stored, the client resumes with the missing ones
+	private List<Integer> receivedChunks;
+	private LocalDateTime expiresAt;
+}
@@ -0,0 +1,334 @@
+package com.pgs.whatsappclone.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.file.FileService;
+import com.pgs.whatsappclone.message.MessageService;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final UploadSessionRepository uploadSessionRepository;
+	private final ChatRepository chatRepository;
+	private final FileService fileService;
+	private final MessageService messageService;
+	private final PlatformTransactionManager transactionManager;
+
+	@Value("${application.upload.sessions.chunk-size:5MB}")
+	private DataSize chunkSize;
+
+	@Value("${application.upload.sessions.ttl:24h}")
+	private Duration ttl;
+
+	@Value("${spring.servlet.multipart.max-file-size}")
+	private DataSize maxFileSize;
+
+	/**
+	 * Opens an upload session for a media message.
+	 *
+	 * @param request the chat, declared MIME type and total size of the file
+	 * @param authentication the current authenticated user, owner of the session
+	 * @return the session, with the chunk size and number of chunks to send
+	 * @throws EntityNotFoundException if the chat does not exist
+	 * @throws AccessDeniedException if the user does not participate in the chat
+	 * @throws MaxUploadSizeExceededException if the file is larger than the configured maximum
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	@Transactional
+	public UploadSessionResponse createSession(UploadSessionRequest request, Authentication authentication) {
+		log.info("Opening upload session for chat ID {} ({} bytes)", request.getChatId(), request.getSize());
+		if (request.getSize() <= 0) {
+			throw new IllegalArgumentException("File size must be positive");
+		}
+		if (request.getSize() > this.maxFileSize.toBytes()) {
+			throw new MaxUploadSizeExceededException(this.maxFileSize.toBytes());
+		}
+
+		Chat chat = this.chatRepository.findById(request.getChatId()).orElseThrow(() -> {
+			log.error("Chat not found, ID: {}", request.getChatId());
+			return new EntityNotFoundException("Chat not found, ID: " + request.getChatId());
+		});
+		final String userId = authentication.getName();
+		if (!chat.getSender().getId().equals(userId) && !chat.getRecipient().getId().equals(userId)) {
+			log.warn("User {} is not a participant of chat {}", userId, chat.getId());
+			throw new AccessDeniedException("User is not a participant of chat " + chat.getId());
+		}
+
+		final int sessionChunkSize = (int) this.chunkSize.toBytes();
+		UploadSession session = new UploadSession();
+		session.setId(UUID.randomUUID().toString());
+		session.setChatId(chat.getId());
+		session.setUserId(userId);
+		session.setFileName(request.getFileName());
+		session.setMimeType(request.getMimeType());
+		session.setSize(request.getSize());
+		session.setChunkSize(sessionChunkSize);
+		session.setChunkCount((int) ((request.getSize() + sessionChunkSize - 1) / sessionChunkSize));
+		session.setExpiresAt(LocalDateTime.now().plus(this.ttl));
+		this.uploadSessionRepository.save(session);
+
+		log.info("Upload session {} opened, {} chunks of {} bytes", session.getId(), session.getChunkCount(), sessionChunkSize);
+		return toResponse(session, List.of());
+	}
+
+	/**
+	 * Returns the state of an upload session, so that an interrupted client can resume it.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 * @return the session with the chunks received so far
+	 * @throws EntityNotFoundException if the session does not exist or has expired
+	 * @throws AccessDeniedException if the user does not own the session
+	 */
+	@Transactional(readOnly = true)
+	public UploadSessionResponse getSession(String sessionId, Authentication authentication) {
+		UploadSession session = this.findSession(sessionId, authentication);
+		return toResponse(session, session.getReceivedChunks().stream().sorted().toList());
+	}
+
+	/**
+	 * Writes a chunk at its offset of the staging file. Chunks may arrive in any order and
+	 * sending the same chunk again is harmless: a chunk already recorded is not written again.
+	 * <p>
+	 * No transaction is open while the body streams: the session is checked in a first short
+	 * transaction and the chunk recorded in a second one. The chunk is first written to a file of
+	 * its own and copied into the staging file only once its full length has arrived, so a cut-off
+	 * request never leaves a partial chunk in the staging file.
+	 * </p>
+	 *
+	 * @param sessionId the ID of the session
+	 * @param chunkIndex the zero-based index of the chunk
+	 * @param content the chunk bytes, exactly {@link UploadSession#getChunkLength(int)} long
+	 * @param authentication the current authenticated user
+	 * @throws EntityNotFoundException if the session does not exist or has expired
+	 * @throws AccessDeniedException if the user does not own the session
+	 * @throws IllegalArgumentException if the index is out of range or the length is wrong
+	 */
+	public void writeChunk(String sessionId, int chunkIndex, InputStream content, Authentication authentication) {
+		final UploadSession session = this.readOnlyTransaction().execute(status -> {
+			UploadSession found = this.findSession(sessionId, authentication);
+			if (chunkIndex < 0 || chunkIndex >= found.getChunkCount()) {
+				throw new IllegalArgumentException("Chunk index must be between 0 and " + (found.getChunkCount() - 1));
+			}
+			return found.getReceivedChunks().contains(chunkIndex) ? null : found;
+		});
+		if (session == null) {
+			log.debug("Chunk {} of upload session {} already stored", chunkIndex, sessionId);
+			return;
+		}
+
+		final long expectedLength = session.getChunkLength(chunkIndex);
+		Path chunkFile = null;
+		try {
+			chunkFile = Files.createTempFile(this.fileService.stagingFolder(), "session-" + sessionId + "-" + chunkIndex, ".chunk");
+			try (FileChannel chunk = FileChannel.open(chunkFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				final long written = receive(Channels.newChannel(content), chunk, expectedLength);
+				if (written != expectedLength) {
+					throw new IllegalArgumentException("Chunk " + chunkIndex + " must be " + expectedLength + " bytes, got " + written);
+				}
+				try (FileChannel target = FileChannel.open(this.stagingFile(sessionId),
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+					// Positional copy, chunks of the same session can be copied concurrently
+					final long offset = session.getChunkOffset(chunkIndex);
+					long copied = 0;
+					while (copied < expectedLength) {
+						copied += target.transferFrom(chunk.position(copied), offset + copied, expectedLength - copied);
+					}
+				}
+			}
+		} catch (IOException e) {
+			log.error("Failed to write chunk {} of upload session {}", chunkIndex, sessionId, e);
+			throw new UncheckedIOException("Failed to write chunk", e);
+		} finally {
+			deleteQuietly(chunkFile);
+		}
+
+		final Integer updated = this.transaction().execute(status -> {
+			int count = this.uploadSessionRepository.extendExpiration(sessionId, LocalDateTime.now().plus(this.ttl));
+			if (count > 0) {
+				this.uploadSessionRepository.addChunk(sessionId, chunkIndex);
+			}
+			return count;
+		});
+		if (updated == null || updated == 0) {
+			// Aborted or completed while the chunk was streaming, the staging file is not used anymore
+			log.warn("Upload session {} closed while receiving chunk {}", sessionId, chunkIndex);
+			deleteQuietly(this.stagingFile(sessionId));
+			throw new EntityNotFoundException("Upload session not found, ID: " + sessionId);
+		}
+		log.debug("Chunk {} of upload session {} stored", chunkIndex, sessionId);
+	}
+
+	/**
+	 * Copies the request body to the chunk file, failing as soon as it exceeds the expected length.
+	 *
+	 * @return the number of bytes received
+	 */
+	private static long receive(ReadableByteChannel source, FileChannel target, long expectedLength) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long written = 0;
+		while (source.read(buffer) != -1) {
+			buffer.flip();
+			if (written + buffer.remaining() > expectedLength) {
+				throw new IllegalArgumentException("Chunk must be " + expectedLength + " bytes");
+			}
+			while (buffer.hasRemaining()) {
+				written += target.write(buffer);
+			}
+			buffer.clear();
+		}
+		return written;
+	}
+
+	/**
+	 * Turns a complete upload session into a media message, through the same path as
+	 * {@link MessageService#uploadMediaMessage(String, org.springframework.web.multipart.MultipartFile, Authentication)}.
+	 * The assembled file is moved into the media store and the session is closed.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 * @throws EntityNotFoundException if the session does not exist or has expired
+	 * @throws AccessDeniedException if the user does not own the session
+	 * @throws IllegalStateException if some chunks are still missing
+	 */
+	@Transactional
+	public void completeSession(String sessionId, Authentication authentication) {
+		UploadSession session = this.findSession(sessionId, authentication);
+		final long received = this.uploadSessionRepository.countChunks(sessionId);
+		if (received < session.getChunkCount()) {
+			throw new IllegalStateException("Upload session " + sessionId + " is missing "
+					+ (session.getChunkCount() - received) + " chunks");
+		}
+
+		this.messageService.uploadMediaMessage(session.getChatId(), this.stagingFile(sessionId), session.getMimeType(), authentication);
+		this.uploadSessionRepository.delete(session);
+		log.info("Upload session {} completed into chat ID {}", sessionId, session.getChatId());
+	}
+
+	/**
+	 * Cancels an upload session and discards the chunks received so far.
+	 *
+	 * @param sessionId the ID of the session
+	 * @param authentication the current authenticated user
+	 * @throws EntityNotFoundException if the session does not exist or has expired
+	 * @throws AccessDeniedException if the user does not own the session
+	 */
+	@Transactional
+	public void abortSession(String sessionId, Authentication authentication) {
+		UploadSession session = this.findSession(sessionId, authentication);
+		this.discard(session);
+		log.info("Upload session {} aborted", sessionId);
+	}
+
+	/**
+	 * Garbage collects the sessions that received no chunk within the configured TTL.
+	 */
+	@Scheduled(fixedDelayString = "${application.upload.sessions.cleanup-interval:1h}")
+	@Transactional
+	public void deleteExpiredSessions() {
+		List<UploadSession> expired = this.uploadSessionRepository.findExpiredSessions(LocalDateTime.now());
+		if (expired.isEmpty()) {
+			return;
+		}
+		expired.forEach(this::discard);
+		log.info("Deleted {} expired upload sessions", expired.size());
+	}
+
+	private UploadSession findSession(String sessionId, Authentication authentication) {
+		UploadSession session = this.uploadSessionRepository.findById(sessionId)
+				.filter(s -> s.getExpiresAt().isAfter(LocalDateTime.now()))
+				.orElseThrow(() -> {
+					log.error("Upload session not found, ID: {}", sessionId);
+					return new EntityNotFoundException("Upload session not found, ID: " + sessionId);
+				});
+		if (!session.getUserId().equals(authentication.getName())) {
+			log.warn("User {} tried to access upload session {}", authentication.getName(), sessionId);
+			throw new AccessDeniedException("User does not own upload session " + sessionId);
+		}
+		return session;
+	}
+
+	private void discard(UploadSession session) {
+		this.uploadSessionRepository.delete(session);
+		try {
+			deleteQuietly(this.stagingFile(session.getId()));
+		} catch (UncheckedIOException e) {
+			log.warn("Failed to delete staging file of upload session {}: {}", session.getId(), e.getMessage());
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Failed to delete staging file {}: {}", file, e.getMessage());
+		}
+	}
+
+	private TransactionTemplate transaction() {
+		return new TransactionTemplate(this.transactionManager);
+	}
+
+	private TransactionTemplate readOnlyTransaction() {
+		TransactionTemplate template = new TransactionTemplate(this.transactionManager);
+		template.setReadOnly(true);
+		return template;
+	}
+
+	private Path stagingFile(String sessionId) {
+		try {
+			return this.fileService.stagingFolder().resolve("session-" + sessionId + ".part");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to create the staging folder", e);
+		}
+	}
+
+	private static UploadSessionResponse toResponse(UploadSession session, List<Integer> receivedChunks) {
+		return UploadSessionResponse.builder()
+				.id(session.getId())
+				.chatId(session.getChatId())
+				.size(session.getSize())
+				.chunkSize(session.getChunkSize())
+				.chunkCount(session.getChunkCount())
+				.receivedChunks(receivedChunks)
+				.expiresAt(session.getExpiresAt())
+				.build();
+	}
+}
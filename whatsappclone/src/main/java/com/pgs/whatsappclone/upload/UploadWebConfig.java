@@ -0,0 +1,34 @@
+package com.pgs.whatsappclone.upload;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Registers the open EntityManager in view interceptor, {@code spring.jpa.open-in-view} being off,
+ * for every request but the chunk uploads.
+ * <p>
+ * The EntityManager of a request holds the JDBC connection of its first transaction until the
+ * response is sent. A chunk upload streams its body between two short transactions and must not
+ * keep a connection while the client sends it.
+ * </p>
+ */
+@Configuration
+@RequiredArgsConstructor
+public class UploadWebConfig implements WebMvcConfigurer {
+
+	private static final String CHUNK_PATH = "/api/v1/uploads/*/chunks/*";
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+		interceptor.setEntityManagerFactory(this.entityManagerFactory);
+		registry.addWebRequestInterceptor(interceptor).excludePathPatterns(CHUNK_PATH);
+	}
+}
@@ -3,15 +3,19 @@ package com.pgs.whatsappclone.user;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.pgs.whatsappclone.chat.Chat;
 import com.pgs.whatsappclone.common.BaseAuditingEntity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedNativeQuery;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -23,6 +27,9 @@ import lombok.Setter;
 @Setter
 @Entity
 @Table(name = "users")
+// Second-level cache, see hibernate-cache.conf. The chat collections are not cached.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserConstants.CACHE_REGION)
 
 @NamedQuery(
 		name = UserConstants.FIND_USER_BY_EMAIL,
@@ -39,10 +46,38 @@ import lombok.Setter;
 		name = UserConstants.FIND_USER_BY_PUBLIC_ID,
 		query = "SELECT u FROM User u WHERE u.id = :publicId"
 )
+// Single round trip insert-or-update used by the IDP synchronization
+@NamedNativeQuery(
+		name = UserConstants.UPSERT_USER,
+		query = "INSERT INTO users (id, first_name, last_name, email, last_seen, created_date) "
+				+ "VALUES (:id, :firstName, :lastName, :email, :lastSeen, :now) "
+				+ "ON CONFLICT (id) DO UPDATE SET "
+				+ "first_name = EXCLUDED.first_name, last_name = EXCLUDED.last_name, email = EXCLUDED.email, "
+				+ "last_modified_date = :now"
+)
+// Directory, keyset paginated on (sort name, id). The expressions must stay identical to the
+// indexes of V8 for Postgres to use them: a b-tree for the ordering, a trigram GIN for LIKE.
+@NamedNativeQuery(
+		name = UserConstants.FIND_DIRECTORY_PAGE,
+		query = "SELECT u.id AS \"id\", u.first_name AS \"firstName\", u.last_name AS \"lastName\", u.email AS \"email\", "
+				+ "lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')) AS \"sortName\" "
+				+ "FROM users u "
+				+ "WHERE u.id <> :userId "
+				+ "AND (lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')), u.id) > (:sortName, :id) "
+				+ "ORDER BY lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')), u.id"
+)
+@NamedNativeQuery(
+		name = UserConstants.SEARCH_DIRECTORY_PAGE,
+		query = "SELECT u.id AS \"id\", u.first_name AS \"firstName\", u.last_name AS \"lastName\", u.email AS \"email\", "
+				+ "lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')) AS \"sortName\" "
+				+ "FROM users u "
+				+ "WHERE u.id <> :userId "
+				+ "AND lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || coalesce(u.email, '')) LIKE :pattern "
+				+ "AND (lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')), u.id) > (:sortName, :id) "
+				+ "ORDER BY lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')), u.id"
+)
 public class User extends BaseAuditingEntity {
 	
-	private static final int LAST_ACTIVE_INTERVAL = 5;
-
 	@Id
 	private String id;
 	
@@ -52,7 +87,7 @@ public class User extends BaseAuditingEntity {
 	
 	private String email;
 	
-	// When the user was last seen (online or not)
+	// When the user was last seen (online or not), flushed periodically by the PresenceService
 	private LocalDateTime lastSeen;
 	
 	@OneToMany(mappedBy = "sender")
@@ -60,22 +95,5 @@ public class User extends BaseAuditingEntity {
 	
 	@OneToMany(mappedBy = "recipient")
 	private List<Chat> chatAsRecipient;
-	
-	@Transient
-	/**
-	 * Determines whether the user is currently considered online.
-	 * <p>
-	 * A user is considered online if their {@code lastSeen} timestamp
-	 * is within the last {@value #LAST_ACTIVE_INTERVAL} minutes from the current time.
-	 * </p>
-	 *
-	 * @return {@code true} if the user has been active within the last {@value #LAST_ACTIVE_INTERVAL} minutes; {@code false} otherwise.
-	 */
-	public boolean isUserOnline() {
-		// lastSeen = 10:05
-		// now 10:09 --> online (<5 min)
-		// now 10:12 --> offline (<5 min)
-		return lastSeen != null && lastSeen.isAfter(LocalDateTime.now().minusMinutes(LAST_ACTIVE_INTERVAL));
-	}
 
 }
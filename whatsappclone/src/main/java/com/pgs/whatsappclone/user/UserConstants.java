@@ -5,6 +5,15 @@ public class UserConstants {
 	public static final String FIND_USER_BY_EMAIL = "Users.findUserByEmail";
 	public static final String FIND_ALL_USERS_EXCEPT_SELF = "Users.findAllUsersExceptSelf";
 	public static final String FIND_USER_BY_PUBLIC_ID = "Users.findUserByPublicId";
+	public static final String UPSERT_USER = "Users.upsertUser";
+	public static final String FIND_DIRECTORY_PAGE = "Users.findDirectoryPage";
+	public static final String SEARCH_DIRECTORY_PAGE = "Users.searchDirectoryPage";
+	
+	// Second-level cache region, configured in hibernate-cache.conf
+	public static final String CACHE_REGION = "users";
+	
+	public static final int DEFAULT_DIRECTORY_PAGE_SIZE = 30;
+	public static final int MAX_DIRECTORY_PAGE_SIZE = 100;
 	
 	private UserConstants() {
 		
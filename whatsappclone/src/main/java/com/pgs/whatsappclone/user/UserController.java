@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -26,7 +27,9 @@ public class UserController {
 	 *
 	 * @param authentication the Spring Security authentication object representing the current user
 	 * @return ResponseEntity containing a list of UserResponse objects with HTTP status 200 OK
+	 * @deprecated returns the whole user base, use {@link #getDirectory(String, int, String, Authentication)}
 	 */
+	@Deprecated
 	@GetMapping
 	public ResponseEntity<List<UserResponse>> getAllUsers(Authentication authentication) {
 	    log.info("Request received to fetch all users except the current authenticated user: {}", authentication.getName());
@@ -34,4 +37,24 @@ public class UserController {
 	    log.info("Returning {} users", users.size());
 	    return ResponseEntity.ok(users);
 	}
+	
+	/**
+	 * Retrieves a page of the user directory, optionally filtered by a search term matched
+	 * against first name, last name and email.
+	 *
+	 * @param query optional search term
+	 * @param size the maximum number of users to return
+	 * @param cursor optional cursor returned by the previous page
+	 * @param authentication the current authenticated user, excluded from the directory
+	 * @return a ResponseEntity containing the page of users and an HTTP 200 status
+	 */
+	@GetMapping("/directory")
+	public ResponseEntity<UserDirectoryResponse> getDirectory(
+			@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "size", defaultValue = "" + UserConstants.DEFAULT_DIRECTORY_PAGE_SIZE) int size,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			Authentication authentication) {
+	    log.info("Request received to fetch the user directory for user: {}", authentication.getName());
+	    return ResponseEntity.ok(this.userService.getDirectory(query, size, cursor, authentication));
+	}
 }
@@ -0,0 +1,62 @@
+package com.pgs.whatsappclone.user;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque keyset cursor pointing at a user of the directory.
+ * <p>
+ * The directory is ordered by {@code (sortName, id)}, so the next page is fetched with an
+ * indexed range predicate on that pair instead of an {@code OFFSET} scan.
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public class UserDirectoryCursor {
+
+	private static final String SEPARATOR = "|";
+
+	// Before the first user: sort names always contain at least a space
+	public static final UserDirectoryCursor FIRST = new UserDirectoryCursor("", "");
+
+	private final String sortName;
+	private final String id;
+
+	public static UserDirectoryCursor of(UserDirectoryEntry entry) {
+		return new UserDirectoryCursor(entry.getSortName(), entry.getId());
+	}
+
+	/**
+	 * Encodes this cursor as a URL-safe Base64 string.
+	 *
+	 * @return the encoded cursor
+	 */
+	public String encode() {
+		final String raw = this.sortName + SEPARATOR + this.id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor previously produced by {@link #encode()}.
+	 *
+	 * @param cursor the encoded cursor
+	 * @return the decoded {@link UserDirectoryCursor}
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public static UserDirectoryCursor decode(String cursor) {
+		try {
+			final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			// Names may contain the separator, IDs may not
+			final int separatorIndex = raw.lastIndexOf(SEPARATOR);
+			if (separatorIndex == -1) {
+				throw new IllegalArgumentException("Invalid directory cursor: " + cursor);
+			}
+			return new UserDirectoryCursor(raw.substring(0, separatorIndex), raw.substring(separatorIndex + 1));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid directory cursor: " + cursor, e);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.pgs.whatsappclone.user;
+
+/**
+ * Row returned by the directory queries, mapped by column alias.
+ */
+public interface UserDirectoryEntry {
+
+	String getId();
+
+	String getFirstName();
+
+	String getLastName();
+
+	String getEmail();
+
+	// Lower-cased "first last" name the directory is ordered by, part of the cursor
+	String getSortName();
+}
@@ -0,0 +1,22 @@
+package com.pgs.whatsappclone.user;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserDirectoryResponse {
+
+	// Ordered by first and last name
+	private List<UserSummaryResponse> users;
+	// Cursor to fetch the next page (null if there are no more users)
+	private String nextCursor;
+}
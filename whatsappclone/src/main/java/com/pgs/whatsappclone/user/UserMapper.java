@@ -5,15 +5,22 @@ import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
+import com.pgs.whatsappclone.presence.PresenceService;
+
+import lombok.RequiredArgsConstructor;
+
 @Service
+@RequiredArgsConstructor
 public class UserMapper {
 	
+	private final PresenceService presenceService;
+	
 	/**
 	 * Creates a {@link User} object from the given JWT token attributes.
 	 * <p>
 	 * This method extracts standard identity claims such as subject (ID), first name,
 	 * last name, and email from the token and maps them to a new {@code User} instance.
-	 * It also sets the current timestamp as the user's last seen time.
+	 * It also sets the current timestamp as the user's last seen time (only stored for new users).
 	 * </p>
 	 *
 	 * <ul>
@@ -67,8 +74,24 @@ public class UserMapper {
 				.firstName(user.getFirstName())
 				.lastName(user.getLastName())
 				.email(user.getEmail())
-				.lastSeen(user.getLastSeen())
-				.isOnline(user.isUserOnline())
+				.lastSeen(this.presenceService.getLastSeen(user.getId(), user.getLastSeen()))
+				.isOnline(this.presenceService.isOnline(user.getId()))
+				.build();
+	}
+
+	/**
+	 * Converts a directory row into a compact {@link UserSummaryResponse} DTO.
+	 *
+	 * @param entry the directory row to convert
+	 * @return a {@link UserSummaryResponse} object populated with data from the given row
+	 */
+	public UserSummaryResponse toUserSummaryResponse(UserDirectoryEntry entry) {
+		return UserSummaryResponse.builder()
+				.id(entry.getId())
+				.firstName(entry.getFirstName())
+				.lastName(entry.getLastName())
+				.email(entry.getEmail())
+				.isOnline(this.presenceService.isOnline(entry.getId()))
 				.build();
 	}
 }
@@ -1,11 +1,19 @@
 package com.pgs.whatsappclone.user;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 public interface UserRepository extends JpaRepository<User, String>{
 	
@@ -18,5 +26,36 @@ public interface UserRepository extends JpaRepository<User, String>{
 	
 	@Query(name = UserConstants.FIND_ALL_USERS_EXCEPT_SELF)
 	List<User> findAllUsersExceptSelf(@Param("publicId") String senderId);
+	
+	// Directory page ordered by name, strictly after the cursor
+	@Query(name = UserConstants.FIND_DIRECTORY_PAGE, nativeQuery = true)
+	List<UserDirectoryEntry> findDirectoryPage(
+			@Param("userId") String userId,
+			@Param("sortName") String sortName,
+			@Param("id") String id,
+			Limit limit);
+	
+	// Same as findDirectoryPage, filtered by a LIKE pattern on the lower-cased name and email
+	@Query(name = UserConstants.SEARCH_DIRECTORY_PAGE, nativeQuery = true)
+	List<UserDirectoryEntry> searchDirectoryPage(
+			@Param("userId") String userId,
+			@Param("pattern") String pattern,
+			@Param("sortName") String sortName,
+			@Param("id") String id,
+			Limit limit);
+	
+	// Native INSERT ... ON CONFLICT, commits on its own. Only the users cache region is
+	// invalidated (claims rarely change, see UserSynchronizer), not the whole second-level cache
+	@Query(name = UserConstants.UPSERT_USER, nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+	@Modifying
+	@Transactional
+	void upsert(
+			@Param("id") String id,
+			@Param("firstName") String firstName,
+			@Param("lastName") String lastName,
+			@Param("email") String email,
+			@Param("lastSeen") LocalDateTime lastSeen,
+			@Param("now") LocalDateTime now);
 
 }
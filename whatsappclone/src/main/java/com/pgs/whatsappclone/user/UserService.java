@@ -1,23 +1,82 @@
 package com.pgs.whatsappclone.user;
 
 import java.util.List;
+import java.util.Locale;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class UserService {
 
 	private final UserRepository userRepository;
 	private final UserMapper userMapper;
 	
+	/**
+	 * Returns every user but the authenticated one.
+	 *
+	 * @deprecated loads the whole users table, use {@link #getDirectory(String, int, String, Authentication)}
+	 */
+	@Deprecated
 	public List<UserResponse> getAllUsersExceptSelf(Authentication connectedUser) {
 		return this.userRepository.findAllUsersExceptSelf(connectedUser.getName())
 				.stream()
 				.map(this.userMapper::toUserResponse)
 				.toList();
 	}
+	
+	/**
+	 * Returns a page of the user directory, ordered by first and last name, excluding the
+	 * authenticated user.
+	 * <p>
+	 * When a search term is given, only users whose first name, last name or email contain it
+	 * (case insensitive) are returned. The substring match is served by a trigram index and
+	 * pages are fetched with a keyset predicate, so the cost of a page does not grow with the
+	 * number of users.
+	 * </p>
+	 *
+	 * @param query optional search term
+	 * @param size the maximum number of users to return, capped to {@link UserConstants#MAX_DIRECTORY_PAGE_SIZE}
+	 * @param cursor optional cursor returned by the previous page
+	 * @param authentication the current authenticated user
+	 * @return the page of users and the cursor of the next one
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	@Transactional(readOnly = true)
+	public UserDirectoryResponse getDirectory(String query, int size, String cursor, Authentication authentication) {
+		final String userId = authentication.getName();
+		final int pageSize = Math.max(1, Math.min(size, UserConstants.MAX_DIRECTORY_PAGE_SIZE));
+		final UserDirectoryCursor from = cursor != null ? UserDirectoryCursor.decode(cursor) : UserDirectoryCursor.FIRST;
+		final boolean search = query != null && !query.isBlank();
+		log.info("Fetching user directory for user {} (search={}, size={})", userId, search, pageSize);
+
+		// One extra row tells us whether there is a next page
+		List<UserDirectoryEntry> entries = search
+				? this.userRepository.searchDirectoryPage(userId, toContainsPattern(query), from.getSortName(), from.getId(), Limit.of(pageSize + 1))
+				: this.userRepository.findDirectoryPage(userId, from.getSortName(), from.getId(), Limit.of(pageSize + 1));
+		final boolean hasNext = entries.size() > pageSize;
+		entries = hasNext ? entries.subList(0, pageSize) : entries;
+
+		log.info("Returning {} users of the directory", entries.size());
+		return UserDirectoryResponse.builder()
+				.users(entries.stream().map(this.userMapper::toUserSummaryResponse).toList())
+				.nextCursor(hasNext ? UserDirectoryCursor.of(entries.get(entries.size() - 1)).encode() : null)
+				.build();
+	}
+	
+	// Lower-cased LIKE pattern matching the term anywhere, with its wildcards escaped
+	private static String toContainsPattern(String query) {
+		final String escaped = query.trim().toLowerCase(Locale.ROOT)
+				.replace("\\", "\\\\")
+				.replace("%", "\\%")
+				.replace("_", "\\_");
+		return "%" + escaped + "%";
+	}
 }
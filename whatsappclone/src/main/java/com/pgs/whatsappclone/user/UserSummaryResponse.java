@@ -0,0 +1,22 @@
+package com.pgs.whatsappclone.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Compact user, as listed in the directory
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserSummaryResponse {
+
+	private String id;
+	private String firstName;
+	private String lastName;
+	private String email;
+	private boolean isOnline;
+}
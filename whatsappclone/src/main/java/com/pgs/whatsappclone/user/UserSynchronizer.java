@@ -1,46 +1,97 @@
 package com.pgs.whatsappclone.user;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserSynchronizer {
 	
+	// Claims mapped to the User entity, only these are fingerprinted
+	private static final String[] SYNCHRONIZED_CLAIMS = { "sub", "given_name", "nickname", "family_name", "email" };
+	
 	private final UserRepository userRepository;
 	private final UserMapper userMapper;
+	// Subject -> fingerprint of the claims last written to the database
+	private final Cache<String, String> synchronizedClaims;
+	
+	public UserSynchronizer(
+			UserRepository userRepository,
+			UserMapper userMapper,
+			@Value("${application.user-sync.cache.max-size:10000}") long cacheMaxSize,
+			@Value("${application.user-sync.cache.ttl:10m}") Duration cacheTtl) {
+		this.userRepository = userRepository;
+		this.userMapper = userMapper;
+		this.synchronizedClaims = Caffeine.newBuilder()
+				.maximumSize(cacheMaxSize)
+				.expireAfterWrite(cacheTtl)
+				.build();
+	}
 	
 	/**
 	 * Synchronizes the user data with the identity provider (IDP) based on the given JWT token.
 	 * <p>
-	 * This method extracts the user's email from the token and attempts to find a matching
-	 * user in the database. If a user with the same email exists, it reuses the existing user's ID
-	 * to ensure the database entry is updated rather than creating a new one.
-	 * <br>
-	 * A new {@link User} entity is then built from the token attributes and saved to the repository.
+	 * A fingerprint of the relevant token claims is cached per subject. If the same subject
+	 * presents the same claims again before the cache entry expires, nothing is written.
+	 * Otherwise a {@link User} is built from the token attributes and written with a single
+	 * native upsert keyed by the subject.
 	 * </p>
 	 *
 	 * @param token the JWT token containing user identity claims from the IDP
 	 */
 	public void synchronizeWithIdp(Jwt token) {
-		log.info("Synchronizing user with idp");
-		this.getUserEmail(token).ifPresent(userEmail -> {
-			log.info("Synchronizing user having email {}", userEmail);
-			Optional<User> optUser = this.userRepository.findByEmail(userEmail);
-			User user = this.userMapper.fromTokenAttributes(token.getClaims());
-			// Update by id if it matches
-			optUser.ifPresent(value -> user.setId(optUser.get().getId()));
-			
-			userRepository.save(user);
-		});
+		final String subject = token.getSubject();
+		if (subject == null || this.getUserEmail(token).isEmpty()) {
+			return;
+		}
+
+		final String fingerprint = this.fingerprint(token.getClaims());
+		if (fingerprint.equals(this.synchronizedClaims.getIfPresent(subject))) {
+			log.debug("Claims unchanged for subject {}, skipping synchronization", subject);
+			return;
+		}
+
+		log.info("Synchronizing user {} with idp", subject);
+		User user = this.userMapper.fromTokenAttributes(token.getClaims());
+		this.userRepository.upsert(
+				user.getId(),
+				user.getFirstName(),
+				user.getLastName(),
+				user.getEmail(),
+				user.getLastSeen(),
+				LocalDateTime.now());
 		
+		// Only cached once the upsert has been committed
+		this.synchronizedClaims.put(subject, fingerprint);
+	}
+	
+	/**
+	 * Computes a compact fingerprint (MD5) of the claims that are persisted on the user.
+	 *
+	 * @param claims the JWT claims
+	 * @return the hexadecimal fingerprint
+	 */
+	private String fingerprint(Map<String, Object> claims) {
+		StringBuilder builder = new StringBuilder();
+		for (String claim : SYNCHRONIZED_CLAIMS) {
+			// Separator avoids ambiguous concatenations
+			builder.append(Objects.toString(claims.get(claim), "")).append('\u0000');
+		}
+		return DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
 	}
 	
 	/**
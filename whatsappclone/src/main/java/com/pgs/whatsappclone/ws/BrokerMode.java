@@ -0,0 +1,20 @@
+package com.pgs.whatsappclone.ws;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Message broker used to deliver STOMP messages.
+ */
+@Getter
+@AllArgsConstructor
+public enum BrokerMode {
+
+	// In-memory broker, single node only. Clients subscribe to /user/{userId}/chat
+	SIMPLE("/chat"),
+	// External STOMP broker (RabbitMQ, Artemis...), multi-node. Clients subscribe to /user/queue/chat
+	RELAY("/queue/chat");
+
+	// Destination notifications are sent to, relative to the user destination prefix
+	private final String chatDestination;
+}
@@ -0,0 +1,66 @@
+package com.pgs.whatsappclone.ws;
+
+import java.security.Principal;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+
+import com.pgs.whatsappclone.presence.PresenceService;
+import com.pgs.whatsappclone.security.KeyCloakJwtAuthenticationConverter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private final JwtDecoder jwtDecoder;
+	private final PresenceService presenceService;
+	private final KeyCloakJwtAuthenticationConverter authenticationConverter = new KeyCloakJwtAuthenticationConverter();
+
+	/**
+	 * Authenticates the STOMP {@code CONNECT} frame with the bearer token sent by the client
+	 * and records user activity (including heartbeats) for presence tracking.
+	 *
+	 * @param message the inbound message
+	 * @param channel the client inbound channel
+	 * @return the message, with the authenticated user attached on {@code CONNECT}
+	 */
+	@Override
+	public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+		StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+		if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+			String authorization = accessor.getFirstNativeHeader(HttpHeaders.AUTHORIZATION);
+			if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+				try {
+					accessor.setUser(this.authenticationConverter.convert(
+							this.jwtDecoder.decode(authorization.substring(BEARER_PREFIX.length()))));
+				} catch (JwtException e) {
+					log.warn("Rejecting WebSocket connection with invalid token: {}", e.getMessage());
+					throw e;
+				}
+			}
+			return message;
+		}
+
+		Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+		if (user != null) {
+			this.presenceService.touch(user.getName());
+		}
+		return message;
+	}
+}
@@ -2,7 +2,10 @@ package com.pgs.whatsappclone.ws;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.MediaType;
@@ -10,8 +13,13 @@ import org.springframework.messaging.converter.DefaultContentTypeResolver;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.messaging.context.AuthenticationPrincipalArgumentResolver;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -26,10 +34,79 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 	
+	// Server and client heartbeat, in milliseconds (drives presence of idle users)
+	private static final long[] HEARTBEAT = { 10000, 10000 };
+	
+	// Cross-node user destination resolution (relay mode only)
+	private static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+	private static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+	
+	private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+	
+	// Same switch Spring Boot uses for Tomcat and the application task executor
+	@Value("${spring.threads.virtual.enabled:false}")
+	private boolean virtualThreads;
+	
+	@Value("${application.websocket.broker.mode:simple}")
+	private BrokerMode brokerMode;
+	
+	@Value("${application.websocket.broker.relay.host:localhost}")
+	private String relayHost;
+	
+	@Value("${application.websocket.broker.relay.port:61613}")
+	private int relayPort;
+	
+	@Value("${application.websocket.broker.relay.virtual-host:}")
+	private String relayVirtualHost;
+	
+	@Value("${application.websocket.broker.relay.client-login:guest}")
+	private String relayClientLogin;
+	
+	@Value("${application.websocket.broker.relay.client-passcode:guest}")
+	private String relayClientPasscode;
+	
+	@Value("${application.websocket.broker.relay.system-login:guest}")
+	private String relaySystemLogin;
+	
+	@Value("${application.websocket.broker.relay.system-passcode:guest}")
+	private String relaySystemPasscode;
+	
+	private TaskScheduler messageBrokerTaskScheduler;
+	
+	@Autowired
+	public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+		this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+	}
+	
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry registry) {
-	    // Enable a simple in-memory message broker and set the destination prefix for messages it will handle
-	    registry.enableSimpleBroker("/user");
+	    if (this.brokerMode == BrokerMode.RELAY) {
+	    	// Relay to an external STOMP broker so that every node can reach every connected user
+	    	StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic", "/queue")
+	    		.setRelayHost(this.relayHost)
+	    		.setRelayPort(this.relayPort)
+	    		.setClientLogin(this.relayClientLogin)
+	    		.setClientPasscode(this.relayClientPasscode)
+	    		.setSystemLogin(this.relaySystemLogin)
+	    		.setSystemPasscode(this.relaySystemPasscode)
+	    		// Messages for users connected to another node are rebroadcast through the broker
+	    		.setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+	    		// Nodes share their local users so the registry knows about remote sessions
+	    		.setUserRegistryBroadcast(USER_REGISTRY_BROADCAST);
+	    	if (StringUtils.hasText(this.relayVirtualHost)) {
+	    		relay.setVirtualHost(this.relayVirtualHost);
+	    	}
+	    } else {
+	    	// Enable a simple in-memory message broker and set the destination prefix for messages it will handle
+	    	registry.enableSimpleBroker("/user")
+	    		.setHeartbeatValue(HEARTBEAT)
+	    		.setTaskScheduler(this.messageBrokerTaskScheduler);
+	    }
+	    
+	    if (this.virtualThreads) {
+	    	// Notifications are handed to the broker off the request thread
+	    	registry.configureBrokerChannel().executor(new VirtualThreadTaskExecutor("ws-broker-"));
+	    }
 	    
 	    // Set prefix for messages bound for methods annotated with @MessageMapping
 	    registry.setApplicationDestinationPrefixes("/app");
@@ -49,6 +126,22 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 	        .withSockJS();
 	}
 
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+	    // Authenticates CONNECT frames and records user activity for presence
+	    registration.interceptors(this.webSocketAuthInterceptor);
+	    if (this.virtualThreads) {
+	    	registration.executor(new VirtualThreadTaskExecutor("ws-inbound-"));
+	    }
+	}
+	
+	@Override
+	public void configureClientOutboundChannel(ChannelRegistration registration) {
+	    if (this.virtualThreads) {
+	    	registration.executor(new VirtualThreadTaskExecutor("ws-outbound-"));
+	    }
+	}
+
 	@Override
 	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
 	    // Adds a custom argument resolver to support injecting the authenticated user
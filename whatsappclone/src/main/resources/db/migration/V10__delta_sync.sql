@@ -0,0 +1,10 @@
+-- Delta sync: rows ordered by change time (last modification, or creation if never modified).
+-- The expressions must stay identical to the sync queries for the indexes to be used.
+CREATE INDEX IF NOT EXISTS idx_messages_chat_changed
+    ON messages (chat_id, (coalesce(last_modified_date, created_date)), id);
+
+CREATE INDEX IF NOT EXISTS idx_chat_sender_changed
+    ON chat (sender_id, (coalesce(last_modified_date, created_date)));
+
+CREATE INDEX IF NOT EXISTS idx_chat_recipient_changed
+    ON chat (recipient_id, (coalesce(last_modified_date, created_date)));
@@ -0,0 +1,16 @@
+-- Per-chat gapless message sequence: chat.last_message_seq is the counter, messages.seq the
+-- position of each message in its chat
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS last_message_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- Existing messages are numbered in their historical order
+UPDATE messages m SET seq = numbered.seq
+FROM (SELECT id, row_number() OVER (PARTITION BY chat_id ORDER BY created_date, id) AS seq FROM messages) numbered
+WHERE m.id = numbered.id AND m.seq IS NULL;
+
+UPDATE chat c SET last_message_seq = coalesce((SELECT max(m.seq) FROM messages m WHERE m.chat_id = c.id), 0);
+
+ALTER TABLE messages ALTER COLUMN seq SET NOT NULL;
+
+-- Serves history pages, gap recovery and exports, and rejects a duplicated position
+CREATE UNIQUE INDEX IF NOT EXISTS uk_messages_chat_seq ON messages (chat_id, seq);
@@ -0,0 +1,3 @@
+-- Lookup by email (UserConstants.FIND_USER_BY_EMAIL). Not unique: emails come from the
+-- identity provider and existing rows are not guaranteed to be distinct.
+CREATE INDEX IF NOT EXISTS idx_users_email ON users (email);
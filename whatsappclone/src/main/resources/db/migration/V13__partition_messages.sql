@@ -0,0 +1,85 @@
+-- Messages partitioned by month of created_date. Reads of recent chats only touch the
+-- partitions of the last weeks, old months can be vacuumed, backed up or detached on their own.
+
+-- Creates the monthly partitions of messages covering [from_date, to_date], returns how many
+-- were missing. Called by MessagePartitionMaintainer to create the months ahead.
+CREATE OR REPLACE FUNCTION create_message_partitions(from_date DATE, to_date DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_date)::date;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    -- Several nodes may run the maintenance at the same time
+    PERFORM pg_advisory_xact_lock(hashtext('create_message_partitions'));
+    -- Creating a partition locks messages: give up rather than queue reads and writes behind
+    -- a long transaction, the months ahead leave time for the next attempt
+    PERFORM set_config('lock_timeout', '2s', true);
+    WHILE month_start <= to_date LOOP
+        partition_name := 'messages_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, (month_start + INTERVAL '1 month')::date);
+            created := created + 1;
+        END IF;
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+ALTER TABLE messages RENAME TO messages_unpartitioned;
+ALTER INDEX messages_pkey RENAME TO messages_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_messages_content_tsv;
+DROP INDEX IF EXISTS idx_messages_chat_changed;
+DROP INDEX IF EXISTS uk_messages_chat_seq;
+
+-- Unique constraints of a partitioned table must include created_date: the primary key is
+-- (id, created_date), IDs stay unique as they come from msg_seq
+CREATE TABLE messages (
+    id                 BIGINT NOT NULL,
+    content            TEXT,
+    state              VARCHAR(255) CHECK (state IN ('SENT','SEEN')),
+    type               VARCHAR(255) CHECK (type IN ('TEXT','IMAGE','AUDIO','VIDEO')),
+    chat_id            VARCHAR(255),
+    seq                BIGINT NOT NULL,
+    sender_id          VARCHAR(255) NOT NULL,
+    receiver_id        VARCHAR(255) NOT NULL,
+    media_blob_key     VARCHAR(255),
+    media_mime_type    VARCHAR(255),
+    media_size         BIGINT,
+    media_width        INTEGER,
+    media_height       INTEGER,
+    media_placeholder  BYTEA,
+    media_thumbnail    BOOLEAN NOT NULL DEFAULT FALSE,
+    content_tsv        tsvector GENERATED ALWAYS AS (to_tsvector('simple', coalesce(content, ''))) STORED,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (id, created_date),
+    CONSTRAINT fk_messages_chat FOREIGN KEY (chat_id) REFERENCES chat
+) PARTITION BY RANGE (created_date);
+
+-- Safety net for rows outside the created months, expected to stay empty
+CREATE TABLE messages_default PARTITION OF messages DEFAULT;
+
+-- Every month with messages, up to three months ahead
+SELECT create_message_partitions(
+    coalesce((SELECT min(created_date) FROM messages_unpartitioned), now())::date,
+    (now() + INTERVAL '3 months')::date);
+
+INSERT INTO messages (id, content, state, type, chat_id, seq, sender_id, receiver_id,
+                      media_blob_key, media_mime_type, media_size, media_width, media_height,
+                      media_placeholder, media_thumbnail, created_date, last_modified_date)
+SELECT id, content, state, type, chat_id, seq, sender_id, receiver_id,
+       media_blob_key, media_mime_type, media_size, media_width, media_height,
+       media_placeholder, media_thumbnail, created_date, last_modified_date
+FROM messages_unpartitioned;
+
+DROP TABLE messages_unpartitioned;
+
+-- Defined on the parent, created on every partition, present and future. (chat_id, seq) can no
+-- longer be unique without created_date; positions are made unique by the chat counter
+-- (see ChatRepository#reserveMessageSeqs).
+CREATE INDEX idx_messages_chat_seq ON messages (chat_id, seq);
+CREATE INDEX idx_messages_chat_changed ON messages (chat_id, (coalesce(last_modified_date, created_date)), id);
+CREATE INDEX idx_messages_content_tsv ON messages USING GIN (content_tsv);
@@ -0,0 +1,69 @@
+-- Cold storage of old conversations. Monthly partitions past the retention period are written
+-- to compressed segments (one gzipped NDJSON file per chat and month) and dropped; only the
+-- small index below stays in the database.
+
+CREATE TABLE IF NOT EXISTS message_archive_segments (
+    id                 VARCHAR(255) NOT NULL,
+    chat_id            VARCHAR(255) NOT NULL,
+    month_start        DATE NOT NULL,
+    first_seq          BIGINT NOT NULL,
+    last_seq           BIGINT NOT NULL,
+    message_count      INTEGER NOT NULL,
+    path               VARCHAR(255) NOT NULL,
+    size               BIGINT NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_archive_segments_chat_month ON message_archive_segments (chat_id, month_start);
+-- Segments overlapping the seq range of a page
+CREATE INDEX IF NOT EXISTS idx_archive_segments_chat_seq ON message_archive_segments (chat_id, first_seq);
+
+-- Media of archived messages: the files are moved to the archive folder, the rows keep the
+-- access check and content type of GET /messages/{id}/media
+CREATE TABLE IF NOT EXISTS archived_media (
+    message_id         BIGINT NOT NULL,
+    chat_id            VARCHAR(255) NOT NULL,
+    sender_id          VARCHAR(255) NOT NULL,
+    receiver_id        VARCHAR(255) NOT NULL,
+    blob_key           VARCHAR(255) NOT NULL,
+    mime_type          VARCHAR(255),
+    thumbnail          BOOLEAN NOT NULL DEFAULT FALSE,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (message_id)
+);
+
+-- First day of the months having a partition of messages, oldest first
+CREATE OR REPLACE FUNCTION message_partition_months() RETURNS SETOF DATE
+LANGUAGE sql STABLE AS $$
+    SELECT to_date(substring(c.relname FROM 10), 'YYYY_MM')
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    WHERE i.inhparent = 'messages'::regclass
+      AND c.relname ~ '^messages_[0-9]{4}_[0-9]{2}$'
+    ORDER BY 1
+$$;
+
+-- Drops the partition of an archived month, provided it still holds the archived number of
+-- messages: a row written after the segments were would otherwise be lost.
+CREATE OR REPLACE FUNCTION drop_message_partition(month_start DATE, archived_rows BIGINT) RETURNS BIGINT
+LANGUAGE plpgsql AS $$
+DECLARE
+    partition_name TEXT := 'messages_' || to_char(month_start, 'YYYY_MM');
+    partition_rows BIGINT;
+BEGIN
+    -- Dropping a partition locks messages: give up rather than queue reads and writes, the
+    -- month is archived again on the next run
+    PERFORM set_config('lock_timeout', '2s', true);
+    EXECUTE format('LOCK TABLE %I IN SHARE MODE', partition_name);
+    EXECUTE format('SELECT count(*) FROM %I', partition_name) INTO partition_rows;
+    IF partition_rows <> archived_rows THEN
+        RAISE EXCEPTION 'Partition % holds % messages, % were archived',
+            partition_name, partition_rows, archived_rows;
+    END IF;
+    EXECUTE format('DROP TABLE %I', partition_name);
+    RETURN partition_rows;
+END;
+$$;
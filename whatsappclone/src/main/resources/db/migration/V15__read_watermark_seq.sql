@@ -0,0 +1,22 @@
+-- Read watermarks hold the per-chat sequence number of the last message read (see V11).
+-- Message IDs come from the pooled msg_seq, each node allocating its own block: their order
+-- is not the order of the messages in a chat.
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS sender_last_read_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS recipient_last_read_seq BIGINT NOT NULL DEFAULT 0;
+
+-- Watermarks were set to the last message of the chat: its position, or failing that the
+-- last position whose ID is not greater
+UPDATE chat c SET sender_last_read_seq = coalesce(
+        (SELECT m.seq FROM messages m WHERE m.chat_id = c.id AND m.id = c.sender_last_read_message_id),
+        (SELECT max(m.seq) FROM messages m WHERE m.chat_id = c.id AND m.id <= c.sender_last_read_message_id),
+        0)
+WHERE c.sender_last_read_message_id IS NOT NULL;
+
+UPDATE chat c SET recipient_last_read_seq = coalesce(
+        (SELECT m.seq FROM messages m WHERE m.chat_id = c.id AND m.id = c.recipient_last_read_message_id),
+        (SELECT max(m.seq) FROM messages m WHERE m.chat_id = c.id AND m.id <= c.recipient_last_read_message_id),
+        0)
+WHERE c.recipient_last_read_message_id IS NOT NULL;
+
+ALTER TABLE chat DROP COLUMN IF EXISTS sender_last_read_message_id;
+ALTER TABLE chat DROP COLUMN IF EXISTS recipient_last_read_message_id;
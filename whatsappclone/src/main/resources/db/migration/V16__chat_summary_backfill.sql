@@ -0,0 +1,34 @@
+-- Fills the denormalized summary of chats (last message, unread counters) from their
+-- messages. It is only maintained as messages are sent: chats quiet since it was introduced
+-- had no last message and no unread count, and sorted last in the chat list.
+-- Recomputed for every chat, the result is the same for the ones already up to date. The
+-- chats that change are stamped as modified so that delta sync sends them again.
+
+UPDATE chat c
+SET last_message_id      = last.id,
+    last_message_preview = left(last.content, 100),
+    last_message_type    = last.type,
+    last_message_time    = last.created_date,
+    last_modified_date   = localtimestamp
+FROM (SELECT DISTINCT ON (m.chat_id) m.chat_id, m.id, m.content, m.type, m.created_date
+      FROM messages m
+      ORDER BY m.chat_id, m.seq DESC) last
+WHERE last.chat_id = c.id
+  AND c.last_message_id IS DISTINCT FROM last.id;
+
+-- Messages after the read watermark of their receiver (see V15), except the ones marked SEEN
+-- one by one before watermarks existed
+UPDATE chat c
+SET sender_unread_count    = counts.sender_unread,
+    recipient_unread_count = counts.recipient_unread,
+    last_modified_date     = localtimestamp
+FROM (SELECT r.id,
+             count(*) FILTER (WHERE m.receiver_id = r.sender_id AND m.seq > r.sender_last_read_seq
+                              AND m.state IS DISTINCT FROM 'SEEN') AS sender_unread,
+             count(*) FILTER (WHERE m.receiver_id = r.recipient_id AND m.seq > r.recipient_last_read_seq
+                              AND m.state IS DISTINCT FROM 'SEEN') AS recipient_unread
+      FROM chat r
+      JOIN messages m ON m.chat_id = r.id
+      GROUP BY r.id) counts
+WHERE counts.id = c.id
+  AND (c.sender_unread_count, c.recipient_unread_count) IS DISTINCT FROM (counts.sender_unread, counts.recipient_unread);
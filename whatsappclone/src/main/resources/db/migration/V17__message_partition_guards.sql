@@ -0,0 +1,80 @@
+-- Guards lost when messages were partitioned (see V13).
+
+-- (chat_id, seq) can no longer be a unique index: it would have to include created_date. Each
+-- insert statement is checked instead: every position must have been reserved from the chat
+-- counter (ChatRepository#reserveMessageSeqs) and be used once. Statement level, so that a
+-- batch of messages is checked in one pass.
+CREATE OR REPLACE FUNCTION check_message_seqs() RETURNS TRIGGER
+LANGUAGE plpgsql AS $$
+BEGIN
+    -- Writers of a chat hold its row from the seq reservation to commit: once it is locked,
+    -- every other message of these chats is committed and visible
+    PERFORM 1 FROM chat WHERE id IN (SELECT i.chat_id FROM inserted i) ORDER BY id FOR UPDATE;
+    IF EXISTS (SELECT 1 FROM inserted i JOIN chat c ON c.id = i.chat_id
+               WHERE i.seq < 1 OR i.seq > c.last_message_seq) THEN
+        RAISE EXCEPTION 'Message position not reserved from the chat counter'
+            USING ERRCODE = 'check_violation';
+    END IF;
+    IF EXISTS (SELECT 1 FROM inserted i JOIN messages m ON m.chat_id = i.chat_id AND m.seq = i.seq
+               GROUP BY i.chat_id, i.seq HAVING count(*) > 1) THEN
+        RAISE EXCEPTION 'Duplicate message position in chat'
+            USING ERRCODE = 'unique_violation';
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS messages_check_seqs ON messages;
+CREATE TRIGGER messages_check_seqs
+    AFTER INSERT ON messages
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION check_message_seqs();
+
+-- A partition cannot be created while the default partition holds rows of its month (dates
+-- beyond the months created ahead, clock skew): they are moved to the new partition.
+CREATE OR REPLACE FUNCTION create_message_partitions(from_date DATE, to_date DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_date)::date;
+    month_end DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+    moved BIGINT;
+BEGIN
+    -- Several nodes may run the maintenance at the same time
+    PERFORM pg_advisory_xact_lock(hashtext('create_message_partitions'));
+    -- Creating a partition locks messages: give up rather than queue reads and writes behind
+    -- a long transaction, the months ahead leave time for the next attempt
+    PERFORM set_config('lock_timeout', '2s', true);
+    WHILE month_start <= to_date LOOP
+        month_end := (month_start + INTERVAL '1 month')::date;
+        partition_name := 'messages_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            LOCK TABLE messages_default IN EXCLUSIVE MODE;
+            CREATE TEMP TABLE messages_moved ON COMMIT DROP AS
+                SELECT id, content, state, type, chat_id, seq, sender_id, receiver_id,
+                       media_blob_key, media_mime_type, media_size, media_width, media_height,
+                       media_placeholder, media_thumbnail, created_date, last_modified_date
+                FROM messages_default
+                WHERE created_date >= month_start AND created_date < month_end;
+            DELETE FROM messages_default WHERE created_date >= month_start AND created_date < month_end;
+            GET DIAGNOSTICS moved = ROW_COUNT;
+
+            EXECUTE format('CREATE TABLE %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, month_end);
+            created := created + 1;
+
+            IF moved > 0 THEN
+                INSERT INTO messages (id, content, state, type, chat_id, seq, sender_id, receiver_id,
+                                      media_blob_key, media_mime_type, media_size, media_width, media_height,
+                                      media_placeholder, media_thumbnail, created_date, last_modified_date)
+                SELECT * FROM messages_moved;
+                RAISE NOTICE 'Moved % messages from messages_default to %', moved, partition_name;
+            END IF;
+            DROP TABLE messages_moved;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$;
@@ -0,0 +1,11 @@
+-- Delta sync reads the messages a user sent and the ones they received, each in change time
+-- order straight from its index: a page costs the same whatever the number of chats of the
+-- user. The expressions must stay identical to the sync queries for the indexes to be used.
+CREATE INDEX IF NOT EXISTS idx_messages_sender_changed
+    ON messages (sender_id, (coalesce(last_modified_date, created_date)), id);
+
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_changed
+    ON messages (receiver_id, (coalesce(last_modified_date, created_date)), id);
+
+-- Scanned chat by chat and sorted, no longer used
+DROP INDEX IF EXISTS idx_messages_chat_changed;
@@ -0,0 +1,59 @@
+-- Baseline schema, as previously generated by Hibernate (ddl-auto: update).
+-- Idempotent so that it can run on databases created before Flyway was enabled.
+
+CREATE SEQUENCE IF NOT EXISTS msg_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS users (
+    id                 VARCHAR(255) NOT NULL,
+    first_name         VARCHAR(255),
+    last_name          VARCHAR(255),
+    email              VARCHAR(255),
+    last_seen          TIMESTAMP(6),
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS chat (
+    id                     VARCHAR(255) NOT NULL,
+    sender_id              VARCHAR(255),
+    recipient_id           VARCHAR(255),
+    last_message_id        BIGINT,
+    last_message_preview   VARCHAR(100),
+    last_message_type      VARCHAR(255) CHECK (last_message_type IN ('TEXT','IMAGE','AUDIO','VIDEO')),
+    last_message_time      TIMESTAMP(6),
+    sender_unread_count    BIGINT NOT NULL DEFAULT 0,
+    recipient_unread_count BIGINT NOT NULL DEFAULT 0,
+    created_date           TIMESTAMP(6) NOT NULL,
+    last_modified_date     TIMESTAMP(6),
+    PRIMARY KEY (id),
+    CONSTRAINT FKl5tt48eo95f9i8ngbdk440nml FOREIGN KEY (sender_id) REFERENCES users,
+    CONSTRAINT FKmyyew1n6wnytn0fgxo99g30mj FOREIGN KEY (recipient_id) REFERENCES users
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id                 BIGINT NOT NULL,
+    content            TEXT,
+    state              VARCHAR(255) CHECK (state IN ('SENT','SEEN')),
+    type               VARCHAR(255) CHECK (type IN ('TEXT','IMAGE','AUDIO','VIDEO')),
+    chat_id            VARCHAR(255),
+    sender_id          VARCHAR(255) NOT NULL,
+    receiver_id        VARCHAR(255) NOT NULL,
+    media_file_path    VARCHAR(255),
+    media_mime_type    VARCHAR(255),
+    media_size         BIGINT,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (id),
+    CONSTRAINT FKdumcu11xf8ldun8i4xpd04j43 FOREIGN KEY (chat_id) REFERENCES chat
+);
+
+-- Columns added after the first deployments
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS last_message_id BIGINT;
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS last_message_preview VARCHAR(100);
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS last_message_type VARCHAR(255);
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS last_message_time TIMESTAMP(6);
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS sender_unread_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS recipient_unread_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_mime_type VARCHAR(255);
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_size BIGINT;
@@ -0,0 +1,2 @@
+-- Message IDs are allocated in blocks of 50 (pooled optimizer, see Message#id)
+ALTER SEQUENCE msg_seq INCREMENT BY 50;
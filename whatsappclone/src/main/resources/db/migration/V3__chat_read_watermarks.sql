@@ -0,0 +1,3 @@
+-- Per-participant read watermarks, messages are no longer rewritten when a chat is read
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS sender_last_read_message_id BIGINT;
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS recipient_last_read_message_id BIGINT;
@@ -0,0 +1,13 @@
+-- Content-addressable media store: files are named by their SHA-256 and shared across messages
+CREATE TABLE IF NOT EXISTS media_blobs (
+    blob_key           VARCHAR(64) NOT NULL,
+    size               BIGINT,
+    mime_type          VARCHAR(255),
+    ref_count          BIGINT NOT NULL DEFAULT 0,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (blob_key)
+);
+
+-- Messages now reference a blob key; rows uploaded before keep their legacy file path
+ALTER TABLE messages RENAME COLUMN media_file_path TO media_blob_key;
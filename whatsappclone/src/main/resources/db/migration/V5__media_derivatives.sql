@@ -0,0 +1,5 @@
+-- Image dimensions, inline placeholder and thumbnail availability of media messages
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_width INTEGER;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_height INTEGER;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_placeholder BYTEA;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS media_thumbnail BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,24 @@
+-- Resumable chunked uploads
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id                 VARCHAR(255) NOT NULL,
+    chat_id            VARCHAR(255) NOT NULL,
+    user_id            VARCHAR(255) NOT NULL,
+    file_name          VARCHAR(255),
+    mime_type          VARCHAR(255),
+    size               BIGINT NOT NULL,
+    chunk_size         INTEGER NOT NULL,
+    chunk_count        INTEGER NOT NULL,
+    expires_at         TIMESTAMP(6) NOT NULL,
+    created_date       TIMESTAMP(6) NOT NULL,
+    last_modified_date TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS upload_session_chunks (
+    session_id  VARCHAR(255) NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    PRIMARY KEY (session_id, chunk_index),
+    CONSTRAINT fk_upload_session_chunks_session FOREIGN KEY (session_id) REFERENCES upload_sessions ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires_at ON upload_sessions (expires_at);
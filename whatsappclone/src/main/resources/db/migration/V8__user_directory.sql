@@ -0,0 +1,8 @@
+-- User directory: ordered browsing and substring search on name and email
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_users_sort_name
+    ON users ((lower(coalesce(first_name, '') || ' ' || coalesce(last_name, ''))), id);
+
+CREATE INDEX IF NOT EXISTS idx_users_search_trgm
+    ON users USING GIN ((lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '') || ' ' || coalesce(email, ''))) gin_trgm_ops);
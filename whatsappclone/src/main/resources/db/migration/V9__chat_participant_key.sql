@@ -0,0 +1,16 @@
+-- Canonical participant pair: "<smaller id>|<larger id>", one chat per pair. IDs are ordered
+-- bytewise (COLLATE "C"), like String.compareTo in Chat.participantKey
+ALTER TABLE chat ADD COLUMN IF NOT EXISTS participant_key VARCHAR(511);
+
+-- Pairs created twice by concurrent requests keep their oldest chat as the canonical one,
+-- the duplicates keep a NULL key and stay reachable from the chat list
+UPDATE chat c SET participant_key = LEAST(c.sender_id COLLATE "C", c.recipient_id COLLATE "C") || '|' || GREATEST(c.sender_id COLLATE "C", c.recipient_id COLLATE "C")
+WHERE c.participant_key IS NULL
+  AND c.sender_id IS NOT NULL AND c.recipient_id IS NOT NULL
+  AND c.id = (SELECT d.id FROM chat d
+              WHERE LEAST(d.sender_id COLLATE "C", d.recipient_id COLLATE "C") = LEAST(c.sender_id COLLATE "C", c.recipient_id COLLATE "C")
+                AND GREATEST(d.sender_id COLLATE "C", d.recipient_id COLLATE "C") = GREATEST(c.sender_id COLLATE "C", c.recipient_id COLLATE "C")
+              ORDER BY d.created_date, d.id
+              LIMIT 1);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_chat_participant_key ON chat (participant_key);
@@ -0,0 +1,256 @@
+package com.pgs.whatsappclone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the platform thread pool of Tomcat (200 threads) with virtual threads under a mixed
+ * load of text messages and media uploads.
+ * <p>
+ * The application is started twice on a random port, with {@code spring.threads.virtual.enabled}
+ * off then on, against the same database. Each run sends {@code POST /api/v1/messages} and
+ * {@code POST /api/v1/messages/upload-media} requests over HTTP, more at once than Tomcat has
+ * platform threads, so the whole request path is measured: security filters, JSON and
+ * multipart parsing, transactions, disk writes and STOMP notifications. The bearer token is
+ * the user ID, decoded without an identity provider.
+ * </p>
+ * Run with {@code mvn test -Pbenchmark}; tune with {@code -Dbenchmark.requests},
+ * {@code -Dbenchmark.concurrency}, {@code -Dbenchmark.uploadRatio}, {@code -Dbenchmark.uploadKb}
+ * and {@code -Dbenchmark.chats}. Needs Docker, skipped otherwise.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@Slf4j
+class MixedLoadBenchmarkTests {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private static final String MESSAGES_PATH = "/api/v1/messages";
+	private static final String UPLOAD_PATH = "/api/v1/messages/upload-media?chat-id=";
+
+	private final int requests = Integer.getInteger("benchmark.requests", 5000);
+	private final int concurrency = Integer.getInteger("benchmark.concurrency", 400);
+	private final double uploadRatio = Double.parseDouble(System.getProperty("benchmark.uploadRatio", "0.2"));
+	private final int uploadKb = Integer.getInteger("benchmark.uploadKb", 512);
+	private final int chats = Integer.getInteger("benchmark.chats", 50);
+
+	@TempDir
+	Path uploadDir;
+
+	@Test
+	void compareThreadModels() throws Exception {
+		Result platform = this.run(false);
+		Result virtual = this.run(true);
+
+		log.info(String.format("%-9s %10s %13s %13s %13s %15s", "threads", "req/s", "text p50 ms", "text p99 ms",
+				"upload p50 ms", "upload p99 ms"));
+		for (Result result : List.of(platform, virtual)) {
+			log.info(String.format("%-9s %10.0f %13.1f %13.1f %13.1f %15.1f", result.name(), result.throughput(),
+					result.textP50(), result.textP99(), result.uploadP50(), result.uploadP99()));
+		}
+	}
+
+	/**
+	 * Starts the application, warms it up and measures one run of the mixed load.
+	 */
+	private Result run(boolean virtualThreads) throws Exception {
+		final String name = virtualThreads ? "virtual" : "platform";
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WhatsAppCloneApiApplication.class,
+				BenchmarkSecurityConfig.class)
+				.properties(Map.of(
+						"server.port", "0",
+						"spring.datasource.url", postgres.getJdbcUrl(),
+						"spring.datasource.username", postgres.getUsername(),
+						"spring.datasource.password", postgres.getPassword(),
+						"spring.threads.virtual.enabled", String.valueOf(virtualThreads),
+						"application.file.uploads.media-output-path", this.uploadDir.resolve(name).toString(),
+						// Per request logs would dominate the measure, the report is kept
+						"logging.level.com.pgs.whatsappclone", "warn",
+						"logging.level." + MixedLoadBenchmarkTests.class.getName(), "info"))
+				.run()) {
+			final JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+			final String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			final List<String[]> chatParticipants = this.createChats(jdbc, name);
+
+			this.load(baseUrl, chatParticipants, this.requests / 10);
+			final long messagesBefore = countMessages(jdbc);
+			Result result = this.load(baseUrl, chatParticipants, this.requests).named(name);
+
+			// Every request was answered and stored, not only timed
+			assertThat(result.failures()).as("failed requests with %s threads", name).isEmpty();
+			assertThat(countMessages(jdbc) - messagesBefore).isEqualTo(this.requests);
+			return result;
+		}
+	}
+
+	/**
+	 * Creates chats between distinct pairs of users, so that senders of different chats never
+	 * wait on the same chat row. Returns the chat ID, sender and recipient of each.
+	 */
+	private List<String[]> createChats(JdbcTemplate jdbc, String run) {
+		List<String[]> chatParticipants = new ArrayList<>(this.chats);
+		for (int i = 0; i < this.chats; i++) {
+			final String sender = run + "-sender-" + i;
+			final String recipient = run + "-recipient-" + i;
+			final String chatId = UUID.randomUUID().toString();
+			jdbc.update("INSERT INTO users (id, email, created_date) VALUES (?, ?, now()), (?, ?, now())",
+					sender, sender + "@example.com", recipient, recipient + "@example.com");
+			jdbc.update("INSERT INTO chat (id, sender_id, recipient_id, created_date) VALUES (?, ?, ?, now())",
+					chatId, sender, recipient);
+			chatParticipants.add(new String[] { chatId, sender, recipient });
+		}
+		return chatParticipants;
+	}
+
+	/**
+	 * Sends the requests with at most {@code concurrency} of them in flight. Latency is measured
+	 * from the moment a request is sent, so it includes the time it waits for a server thread.
+	 */
+	private Result load(String baseUrl, List<String[]> chatParticipants, int count) throws InterruptedException {
+		final Queue<Long> text = new ConcurrentLinkedQueue<>();
+		final Queue<Long> uploads = new ConcurrentLinkedQueue<>();
+		final Queue<String> failures = new ConcurrentLinkedQueue<>();
+		final Semaphore inFlight = new Semaphore(this.concurrency);
+
+		final long start = System.nanoTime();
+		// Closed in reverse order: every request completes before the client is closed
+		try (HttpClient http = HttpClient.newHttpClient();
+				ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < count; i++) {
+				final String[] chat = chatParticipants.get(i % chatParticipants.size());
+				final boolean upload = ThreadLocalRandom.current().nextDouble() < this.uploadRatio;
+				final HttpRequest request = upload ? this.uploadRequest(baseUrl, chat) : textRequest(baseUrl, chat);
+				inFlight.acquire();
+				clients.submit(() -> {
+					final long sent = System.nanoTime();
+					try {
+						HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+						if (response.statusCode() != HttpStatus.CREATED.value()) {
+							failures.add(response.statusCode() + " " + response.body());
+						}
+					} catch (IOException | InterruptedException e) {
+						failures.add(e.toString());
+					} finally {
+						(upload ? uploads : text).add(System.nanoTime() - sent);
+						inFlight.release();
+					}
+				});
+			}
+		}
+		final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+		return new Result(null, count / elapsedSeconds, percentile(text, 0.50), percentile(text, 0.99),
+				percentile(uploads, 0.50), percentile(uploads, 0.99), List.copyOf(failures));
+	}
+
+	private static HttpRequest textRequest(String baseUrl, String[] chat) {
+		final String body = String.format(
+				"{\"content\":\"benchmark\",\"senderId\":\"%s\",\"receiverId\":\"%s\",\"type\":\"TEXT\",\"chatId\":\"%s\"}",
+				chat[1], chat[2], chat[0]);
+		return HttpRequest.newBuilder(URI.create(baseUrl + MESSAGES_PATH))
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + chat[1])
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	// Random content: every upload is a new blob written to disk, not a deduplicated reference
+	private HttpRequest uploadRequest(String baseUrl, String[] chat) {
+		final String boundary = UUID.randomUUID().toString();
+		final byte[] content = new byte[this.uploadKb * 1024];
+		ThreadLocalRandom.current().nextBytes(content);
+		ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+		body.writeBytes(("--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"upload.bin\"\r\n"
+				+ "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		body.writeBytes(content);
+		body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+		return HttpRequest.newBuilder(URI.create(baseUrl + UPLOAD_PATH + chat[0]))
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + chat[1])
+				.header(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+				.build();
+	}
+
+	private static long countMessages(JdbcTemplate jdbc) {
+		return jdbc.queryForObject("SELECT count(*) FROM messages", Long.class);
+	}
+
+	private static double percentile(Queue<Long> nanos, double percentile) {
+		if (nanos.isEmpty()) {
+			return 0;
+		}
+		List<Long> sorted = new ArrayList<>(nanos);
+		sorted.sort(null);
+		int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index)) / 1e6;
+	}
+
+	private record Result(String name, double throughput, double textP50, double textP99, double uploadP50,
+			double uploadP99, List<String> failures) {
+
+		Result named(String name) {
+			return new Result(name, this.throughput, this.textP50, this.textP99, this.uploadP50, this.uploadP99,
+					this.failures);
+		}
+	}
+
+	/**
+	 * Accepts the user ID as bearer token, with the claims Keycloak would put in it.
+	 */
+	@TestConfiguration(proxyBeanMethods = false)
+	static class BenchmarkSecurityConfig {
+
+		@Bean
+		JwtDecoder benchmarkJwtDecoder() {
+			return token -> Jwt.withTokenValue(token)
+					.header("alg", "none")
+					.subject(token)
+					.claim("email", token + "@example.com")
+					.claim("given_name", token)
+					.claim("resource_access", Map.of("account", Map.of("roles", List.of())))
+					.issuedAt(Instant.now())
+					.expiresAt(Instant.now().plus(Duration.ofHours(1)))
+					.build();
+		}
+	}
+}
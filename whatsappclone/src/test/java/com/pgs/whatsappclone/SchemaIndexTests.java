@@ -0,0 +1,353 @@
+package com.pgs.whatsappclone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.pgs.whatsappclone.archive.ArchivedMessage;
+import com.pgs.whatsappclone.archive.MessageArchiveSegmentRepository;
+import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.message.Message;
+import com.pgs.whatsappclone.message.MessageRepository;
+import com.pgs.whatsappclone.upload.UploadSessionRepository;
+import com.pgs.whatsappclone.user.UserRepository;
+
+/**
+ * Checks that the schema built by the Flyway migrations matches the entities
+ * ({@code ddl-auto: validate}), that each named query is served by the index designed for it
+ * and that the reads of recent messages only touch the partitions that can hold them. Message
+ * IDs are checked to come from {@code msg_seq} in pooled blocks.
+ * <p>
+ * The SQL actually generated for each repository call is captured and run through
+ * {@code EXPLAIN (GENERIC_PLAN)}, the plan used for any parameter value. Sequential scans are
+ * disabled so that the planner picks an index whenever one matches, whatever the (empty)
+ * tables contain: a query without a usable index still shows a sequential scan.
+ * </p>
+ * Needs Docker, skipped otherwise.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "com.pgs.whatsappclone.SchemaIndexTests$CapturingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaIndexTests {
+
+	@Container
+	@ServiceConnection
+	// Simple query protocol: the numbered parameters of EXPLAIN (GENERIC_PLAN) are sent as is,
+	// the extended protocol would expect values to be bound to them
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+			.withUrlParam("preferQueryMode", "simple");
+
+	private static final Pattern PARAMETER = Pattern.compile("\\?");
+	// A Sort plan node, not the sort key of a Merge Append
+	private static final Pattern SORT_NODE = Pattern.compile("Sort\\s+\\(cost");
+	private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+	private static final String USER_ID = "user";
+	private static final String CHAT_ID = "chat";
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ChatRepository chatRepository;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	@Autowired
+	private UploadSessionRepository uploadSessionRepository;
+
+	@Autowired
+	private MessageArchiveSegmentRepository segmentRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	// Month without messages, older than the partitions created by the migrations
+	private LocalDate oldPartition;
+
+	@BeforeEach
+	void setUp() {
+		// Rolled back with the transaction of the test
+		this.oldPartition = LocalDate.now().minusMonths(6);
+		this.messageRepository.createPartitions(this.oldPartition, this.oldPartition);
+		CapturingStatementInspector.STATEMENTS.clear();
+	}
+
+	@Test
+	void findByEmailUsesEmailIndex() {
+		this.userRepository.findByEmail("user@example.com");
+		assertThat(this.explainLastStatement()).contains("idx_users_email");
+	}
+
+	@Test
+	void directoryPageUsesSortNameIndex() {
+		this.userRepository.findDirectoryPage(USER_ID, "", "", Limit.of(30));
+		assertThat(this.explainLastStatement()).contains("idx_users_sort_name");
+	}
+
+	@Test
+	void directorySearchUsesTrigramIndex() {
+		this.userRepository.searchDirectoryPage(USER_ID, "%ali%", "", "", Limit.of(30));
+		assertThat(this.explainLastStatement()).contains("idx_users_search_trgm");
+	}
+
+	@Test
+	void chatListUsesParticipantIndexes() {
+		this.chatRepository.findBySenderId(USER_ID);
+		assertThat(this.explainLastStatement()).contains("idx_chat_sender_changed", "idx_chat_recipient_changed");
+	}
+
+	@Test
+	void chatLookupByParticipantsUsesParticipantKeyIndex() {
+		this.chatRepository.findChatIdByParticipantKey(Chat.participantKey(USER_ID, "other"));
+		assertThat(this.explainLastStatement()).contains("uk_chat_participant_key");
+	}
+
+	@Test
+	void changedChatsUseParticipantIndexes() {
+		this.chatRepository.findChatsChangedSince(USER_ID, LocalDateTime.now());
+		assertThat(this.explainLastStatement()).contains("idx_chat_sender_changed", "idx_chat_recipient_changed");
+	}
+
+	@Test
+	void latestMessagesUseChatSeqIndex() {
+		this.messageRepository.findLatestMessagesByChatId(CHAT_ID, LocalDateTime.now(), Limit.of(50));
+		assertThat(this.explainLastStatement()).containsAnyOf(this.partitionedIndex("idx_messages_chat_seq"));
+	}
+
+	@Test
+	void messagesBeforeCursorUseChatSeqIndex() {
+		this.messageRepository.findMessagesBeforeCursor(CHAT_ID, 100L, LocalDateTime.now(), Limit.of(50));
+		assertThat(this.explainLastStatement()).containsAnyOf(this.partitionedIndex("idx_messages_chat_seq"));
+	}
+
+	@Test
+	void messagesAfterCursorUseChatSeqIndex() {
+		this.messageRepository.findMessagesAfterCursor(CHAT_ID, 100L, LocalDateTime.now(), Limit.of(50));
+		assertThat(this.explainLastStatement()).containsAnyOf(this.partitionedIndex("idx_messages_chat_seq"));
+	}
+
+	@Test
+	void messagesInSeqRangeUseChatSeqIndex() {
+		this.messageRepository.findMessagesInSeqRange(CHAT_ID, 10L, 20L, Limit.of(50));
+		assertThat(this.explainLastStatement()).containsAnyOf(this.partitionedIndex("idx_messages_chat_seq"));
+	}
+
+	@Test
+	void changedSentMessagesUseSenderIndexWithoutSort() {
+		this.messageRepository.findSentMessagesChangedSince(USER_ID, LocalDateTime.now(), 0L, Limit.of(200));
+		assertThat(this.explainLastStatement())
+				.containsAnyOf(this.partitionedIndex("idx_messages_sender_changed"))
+				// Partitions merged in index order: no Sort node, whatever the number of chats
+				.doesNotContainPattern(SORT_NODE);
+	}
+
+	@Test
+	void changedReceivedMessagesUseReceiverIndexWithoutSort() {
+		this.messageRepository.findReceivedMessagesChangedSince(USER_ID, LocalDateTime.now(), 0L, Limit.of(200));
+		assertThat(this.explainLastStatement())
+				.containsAnyOf(this.partitionedIndex("idx_messages_receiver_changed"))
+				.doesNotContainPattern(SORT_NODE);
+	}
+
+	@Test
+	void messageSearchUsesFullTextIndex() {
+		this.messageRepository.searchMessages("hello", USER_ID, Float.MAX_VALUE, Long.MAX_VALUE, Limit.of(20));
+		assertThat(this.explainLastStatement()).containsAnyOf(this.partitionedIndex("idx_messages_content_tsv"));
+	}
+
+	@Test
+	void latestMessagesSkipOldPartitions() {
+		final LocalDateTime since = LocalDateTime.now().minusDays(31);
+		this.messageRepository.findLatestMessagesByChatId(CHAT_ID, since, Limit.of(50));
+		assertThat(this.explainLastStatement(CHAT_ID, since, 50))
+				.contains(partitionOf(LocalDate.now()))
+				.doesNotContain(partitionOf(this.oldPartition));
+	}
+
+	@Test
+	void messagesBeforeCursorSkipNewerPartitions() {
+		final LocalDateTime until = this.oldPartition.atStartOfDay().plusDays(10);
+		this.messageRepository.findMessagesBeforeCursor(CHAT_ID, 100L, until, Limit.of(50));
+		assertThat(this.explainLastStatement(CHAT_ID, 100L, until, 50))
+				.contains(partitionOf(this.oldPartition))
+				.doesNotContain(partitionOf(LocalDate.now()));
+	}
+
+	@Test
+	void messagesAfterCursorSkipOlderPartitions() {
+		final LocalDateTime since = LocalDateTime.now().minusDays(1);
+		this.messageRepository.findMessagesAfterCursor(CHAT_ID, 100L, since, Limit.of(50));
+		assertThat(this.explainLastStatement(CHAT_ID, 100L, since, 50))
+				.contains(partitionOf(LocalDate.now()))
+				.doesNotContain(partitionOf(this.oldPartition));
+	}
+
+	@Test
+	void thumbnailUpdateTouchesOnePartition() {
+		final LocalDateTime createdDate = LocalDateTime.now();
+		final LocalDateTime now = createdDate.plusSeconds(1);
+		this.messageRepository.markThumbnailReady(1L, createdDate, now);
+		assertThat(this.explainLastStatement(now, 1L, createdDate))
+				.contains(partitionOf(LocalDate.now()))
+				.doesNotContain(partitionOf(this.oldPartition), "messages_default");
+	}
+
+	@Test
+	void oldPartitionsAreListedForArchival() {
+		assertThat(this.segmentRepository.findPartitionMonthsBefore(LocalDate.now().withDayOfMonth(1)))
+				.contains(this.oldPartition.withDayOfMonth(1))
+				.doesNotContain(LocalDate.now().withDayOfMonth(1));
+	}
+
+	@Test
+	void archivedMonthIsReadFromItsPartitionOnly() {
+		final LocalDateTime from = this.oldPartition.withDayOfMonth(1).atStartOfDay();
+		final LocalDateTime until = from.plusMonths(1);
+		try (Stream<ArchivedMessage> messages = this.segmentRepository.streamMessagesCreatedBetween(from, until)) {
+			assertThat(messages).isEmpty();
+		}
+		assertThat(this.explainLastStatement(from, until))
+				.contains(partitionOf(this.oldPartition))
+				.doesNotContain(partitionOf(LocalDate.now()), "messages_default");
+	}
+
+	@Test
+	void archiveSegmentsBeforeCursorUseChatSeqIndex() {
+		this.segmentRepository.findSegmentsBefore(CHAT_ID, 100L);
+		assertThat(this.explainLastStatement()).contains("idx_archive_segments_chat_seq");
+	}
+
+	@Test
+	void archiveSegmentsInRangeUseChatSeqIndex() {
+		this.segmentRepository.findSegmentsInRange(CHAT_ID, 100L, 200L);
+		assertThat(this.explainLastStatement()).contains("idx_archive_segments_chat_seq");
+	}
+
+	@Test
+	void expiredUploadSessionsUseExpirationIndex() {
+		this.uploadSessionRepository.findExpiredSessions(LocalDateTime.now());
+		assertThat(this.explainLastStatement()).contains("idx_upload_sessions_expires_at");
+	}
+
+	@Test
+	void messageIdsAreAllocatedInPooledBlocks() {
+		final Chat chat = this.chatRepository.getReferenceById(CHAT_ID);
+		List<Message> messages = LongStream.rangeClosed(1, 100).mapToObj(seq -> {
+			Message message = new Message();
+			message.setChat(chat);
+			message.setSeq(seq);
+			return message;
+		}).toList();
+
+		// IDs are assigned on persist, the rows are never flushed: the transaction is rolled back
+		this.messageRepository.saveAll(messages);
+
+		// Two blocks of 50, plus the extra call of a generator used for the first time
+		assertThat(CapturingStatementInspector.STATEMENTS).filteredOn(sql -> sql.contains("msg_seq")).hasSizeLessThanOrEqualTo(3);
+		assertThat(messages).extracting(Message::getId).doesNotContainNull().doesNotHaveDuplicates();
+	}
+
+	/**
+	 * Explains the generic plan of the last statement sent by Hibernate, JDBC placeholders
+	 * replaced by numbered parameters.
+	 */
+	private String explainLastStatement() {
+		final String sql = lastStatement();
+		Matcher matcher = PARAMETER.matcher(sql);
+		StringBuilder numbered = new StringBuilder();
+		int index = 0;
+		while (matcher.find()) {
+			matcher.appendReplacement(numbered, "\\$" + ++index);
+		}
+		matcher.appendTail(numbered);
+		return this.explain("EXPLAIN (GENERIC_PLAN) " + numbered);
+	}
+
+	/**
+	 * Explains the last statement sent by Hibernate for the given parameter values, in
+	 * placeholder order: the partitions that cannot match are pruned from the plan.
+	 */
+	private String explainLastStatement(Object... parameters) {
+		final String sql = lastStatement();
+		Matcher matcher = PARAMETER.matcher(sql);
+		StringBuilder bound = new StringBuilder();
+		int index = 0;
+		while (matcher.find()) {
+			final Object parameter = parameters[index++];
+			final String literal = parameter instanceof Number ? parameter.toString() : "'" + parameter + "'";
+			matcher.appendReplacement(bound, Matcher.quoteReplacement(literal));
+		}
+		matcher.appendTail(bound);
+		assertThat(index).isEqualTo(parameters.length);
+		return this.explain("EXPLAIN " + bound);
+	}
+
+	/**
+	 * Runs an EXPLAIN in the transaction of the test, so the setting is rolled back with it.
+	 */
+	private String explain(String explain) {
+		this.jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+		final String plan = String.join("\n", this.jdbcTemplate.queryForList(explain, String.class));
+		System.out.printf("%s%n%s%n%n", explain, plan);
+		return plan;
+	}
+
+	/**
+	 * Returns the name of an index of {@code messages} and of its copies on every partition.
+	 */
+	private String[] partitionedIndex(String index) {
+		return this.jdbcTemplate.queryForList(
+				"SELECT c.relname FROM pg_class c WHERE c.relname = '" + index + "' "
+						+ "OR c.oid IN (SELECT i.inhrelid FROM pg_inherits i WHERE i.inhparent = '" + index + "'::regclass)",
+				String.class).toArray(String[]::new);
+	}
+
+	private static String partitionOf(LocalDate month) {
+		return "messages_" + month.format(PARTITION_SUFFIX) + " ";
+	}
+
+	private static String lastStatement() {
+		final List<String> statements = CapturingStatementInspector.STATEMENTS;
+		assertThat(statements).isNotEmpty();
+		return statements.get(statements.size() - 1);
+	}
+
+	/**
+	 * Records every statement prepared by Hibernate, registered through
+	 * {@code hibernate.session_factory.statement_inspector}.
+	 */
+	public static class CapturingStatementInspector implements StatementInspector {
+
+		static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+}
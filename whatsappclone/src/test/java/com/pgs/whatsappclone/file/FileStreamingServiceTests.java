@@ -0,0 +1,118 @@
+package com.pgs.whatsappclone.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Checks the {@code Range} handling of {@link FileStreamingService}, on both the cached
+ * (memory-mapped) and the uncached ({@code FileChannel.transferTo}) paths.
+ */
+class FileStreamingServiceTests {
+
+	private static final String CONTENT = "0123456789";
+	private static final String MIME_TYPE = "text/plain";
+
+	@TempDir
+	Path folder;
+
+	// Every file of these tests is cached
+	private final FileStreamingService cached = new FileStreamingService(
+			new MediaReader(new SimpleMeterRegistry(), DataSize.ofMegabytes(1), DataSize.ofKilobytes(64)));
+
+	// No file of these tests is cached
+	private final FileStreamingService uncached = new FileStreamingService(
+			new MediaReader(new SimpleMeterRegistry(), DataSize.ofMegabytes(1), DataSize.ofBytes(1)));
+
+	@Test
+	void noRangeSendsWholeFile() throws IOException {
+		MockHttpServletResponse response = this.stream(this.uncached, CONTENT, null);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+		assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void rangeSendsPartialContent() throws IOException {
+		for (FileStreamingService service : new FileStreamingService[] { this.cached, this.uncached }) {
+			MockHttpServletResponse response = this.stream(service, CONTENT, "bytes=2-5");
+			assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+			assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+			assertThat(response.getContentLengthLong()).isEqualTo(4);
+			assertThat(response.getContentAsString()).isEqualTo("2345");
+		}
+	}
+
+	@Test
+	void rangeEndIsClampedToFileSize() throws IOException {
+		MockHttpServletResponse response = this.stream(this.cached, CONTENT, "bytes=7-100");
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+		assertThat(response.getContentAsString()).isEqualTo("789");
+	}
+
+	@Test
+	void suffixRangeSendsLastBytes() throws IOException {
+		for (FileStreamingService service : new FileStreamingService[] { this.cached, this.uncached }) {
+			MockHttpServletResponse response = this.stream(service, CONTENT, "bytes=-3");
+			assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+			assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+			assertThat(response.getContentAsString()).isEqualTo("789");
+		}
+	}
+
+	@Test
+	void rangePastEndOfFileIsNotSatisfiable() throws IOException {
+		for (FileStreamingService service : new FileStreamingService[] { this.cached, this.uncached }) {
+			MockHttpServletResponse response = this.stream(service, CONTENT, "bytes=1000-");
+			assertThat(response.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+			assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+			assertThat(response.getContentAsByteArray()).isEmpty();
+		}
+	}
+
+	@Test
+	void rangeOfEmptyFileIsNotSatisfiable() throws IOException {
+		for (String range : new String[] { "bytes=0-", "bytes=-5" }) {
+			MockHttpServletResponse response = this.stream(this.cached, "", range);
+			assertThat(response.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+			assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */0");
+		}
+	}
+
+	@Test
+	void malformedRangeIsNotSatisfiable() throws IOException {
+		MockHttpServletResponse response = this.stream(this.cached, CONTENT, "bytes=5-2");
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+	}
+
+	@Test
+	void missingFileIsNotFound() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.cached.streamFile(this.folder.resolve("missing").toString(), MIME_TYPE, "bytes=0-",
+				new MockHttpServletRequest(), response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+	}
+
+	private MockHttpServletResponse stream(FileStreamingService service, String content, String range) throws IOException {
+		final Path file = Files.createTempFile(this.folder, "media", ".txt");
+		Files.writeString(file, content, StandardCharsets.US_ASCII);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		service.streamFile(file.toString(), MIME_TYPE, range, new MockHttpServletRequest(), response);
+		return response;
+	}
+}
@@ -0,0 +1,195 @@
+package com.pgs.whatsappclone.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgs.whatsappclone.archive.MessageArchiveService;
+import com.pgs.whatsappclone.chat.Chat;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.file.FileService;
+import com.pgs.whatsappclone.file.MediaReader;
+import com.pgs.whatsappclone.notification.Notification;
+import com.pgs.whatsappclone.notification.NotificationService;
+import com.pgs.whatsappclone.user.User;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Checks the batch ingest of {@link MessageService#saveMessages(List)}: invalid items are
+ * reported without failing the others, sequence numbers are reserved in one block per chat and
+ * receivers get one notification frame each.
+ */
+class MessageServiceBatchTests {
+
+	private static final String ALICE = "alice";
+	private static final String BOB = "bob";
+	private static final String CAROL = "carol";
+
+	private final MessageRepository messageRepository = mock(MessageRepository.class);
+	private final ChatRepository chatRepository = mock(ChatRepository.class);
+	private final NotificationService notificationService = mock(NotificationService.class);
+	private final MessageService messageService = new MessageService(this.messageRepository, this.chatRepository,
+			mock(MessageMapper.class), mock(FileService.class), mock(MediaReader.class), this.notificationService,
+			mock(EntityManager.class, RETURNS_DEEP_STUBS), mock(ObjectMapper.class),
+			mock(ApplicationEventPublisher.class), mock(MessageArchiveService.class));
+
+	private final Chat aliceBob = chat("alice-bob", ALICE, BOB);
+	private final Chat aliceCarol = chat("alice-carol", ALICE, CAROL);
+
+	// IDs handed out by the mocked saveAll, as the pooled sequence would
+	private final AtomicLong nextId = new AtomicLong(100);
+
+	@BeforeEach
+	void setUp() {
+		// Cached chats are evicted again after commit
+		TransactionSynchronizationManager.initSynchronization();
+		when(this.chatRepository.findAllById(anyCollection())).thenReturn(List.of(this.aliceBob, this.aliceCarol));
+		when(this.chatRepository.reserveMessageSeqs(anyString(), eq(1))).thenReturn(11L);
+		when(this.chatRepository.reserveMessageSeqs(anyString(), eq(2))).thenReturn(12L);
+		when(this.chatRepository.reserveMessageSeqs(anyString(), eq(3))).thenReturn(13L);
+		when(this.messageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+			List<Message> messages = invocation.getArgument(0);
+			messages.forEach(message -> message.setId(this.nextId.getAndIncrement()));
+			return messages;
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.clearSynchronization();
+	}
+
+	@Test
+	void invalidItemsAreReportedWithoutFailingTheOthers() {
+		BatchMessageResponse response = this.messageService.saveMessages(List.of(
+				text("alice-bob", ALICE, BOB, "hello"),
+				text("missing", ALICE, BOB, "hello"),
+				text("alice-bob", ALICE, CAROL, "hello"),
+				text("alice-bob", BOB, ALICE, " "),
+				MessageRequest.builder().chatId("alice-bob").senderId(ALICE).receiverId(BOB)
+						.type(MessageType.IMAGE).content("image").build(),
+				text("alice-bob", BOB, ALICE, "hi")));
+
+		assertThat(response.getSucceeded()).isEqualTo(2);
+		assertThat(response.getFailed()).isEqualTo(4);
+		assertThat(response.getResults()).extracting(BatchMessageResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+		assertThat(response.getResults()).extracting(BatchMessageResult::isSuccess)
+				.containsExactly(true, false, false, false, false, true);
+		assertThat(response.getResults().get(1).getError()).contains("Chat not found");
+		assertThat(response.getResults().get(2).getError()).contains("participants");
+		assertThat(response.getResults().get(3).getError()).contains("content");
+		assertThat(response.getResults().get(4).getError()).contains("TEXT");
+		// Valid items keep their request order and get the IDs of one saveAll
+		assertThat(response.getResults().get(0).getMessageId()).isEqualTo(100L);
+		assertThat(response.getResults().get(5).getMessageId()).isEqualTo(101L);
+		verify(this.messageRepository, times(1)).saveAll(anyList());
+	}
+
+	@Test
+	void sequenceNumbersAreReservedInOneBlockPerChat() {
+		this.messageService.saveMessages(List.of(
+				text("alice-bob", ALICE, BOB, "1"),
+				text("alice-carol", ALICE, CAROL, "2"),
+				text("alice-bob", BOB, ALICE, "3"),
+				text("alice-bob", ALICE, BOB, "4")));
+
+		verify(this.chatRepository).reserveMessageSeqs("alice-bob", 3);
+		verify(this.chatRepository).reserveMessageSeqs("alice-carol", 1);
+		List<Message> saved = this.savedMessages();
+		// Reserved up to 13 for three messages: 11, 12, 13 in request order
+		assertThat(saved).filteredOn(message -> message.getChat() == this.aliceBob)
+				.extracting(Message::getSeq).containsExactly(11L, 12L, 13L);
+		assertThat(saved).filteredOn(message -> message.getChat() == this.aliceCarol)
+				.extracting(Message::getSeq).containsExactly(11L);
+	}
+
+	@Test
+	void receiversGetOneNotificationFramePerBatch() {
+		this.messageService.saveMessages(List.of(
+				text("alice-bob", ALICE, BOB, "1"),
+				text("alice-carol", ALICE, CAROL, "2"),
+				text("alice-bob", ALICE, BOB, "3"),
+				text("alice-bob", BOB, ALICE, "4")));
+
+		assertThat(this.notificationsOf(BOB)).extracting(Notification::getContent).containsExactly("1", "3");
+		assertThat(this.notificationsOf(CAROL)).extracting(Notification::getContent).containsExactly("2");
+		assertThat(this.notificationsOf(ALICE)).extracting(Notification::getContent).containsExactly("4");
+	}
+
+	@Test
+	void failedItemsAreNotNotified() {
+		this.messageService.saveMessages(List.of(text("missing", ALICE, BOB, "hello")));
+
+		verify(this.notificationService, never()).sendNotifications(anyString(), anyList());
+	}
+
+	@Test
+	void batchLargerThanAllowedIsRejected() {
+		List<MessageRequest> requests = Collections.nCopies(MessageConstants.MAX_BATCH_SIZE + 1,
+				text("alice-bob", ALICE, BOB, "hello"));
+
+		assertThatThrownBy(() -> this.messageService.saveMessages(requests)).isInstanceOf(IllegalArgumentException.class);
+		verify(this.messageRepository, never()).saveAll(anyList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Message> savedMessages() {
+		ArgumentCaptor<List<Message>> captor = ArgumentCaptor.forClass(List.class);
+		verify(this.messageRepository).saveAll(captor.capture());
+		return captor.getValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Notification> notificationsOf(String userId) {
+		ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+		verify(this.notificationService).sendNotifications(eq(userId), captor.capture());
+		return new ArrayList<>(captor.getValue());
+	}
+
+	private static MessageRequest text(String chatId, String senderId, String receiverId, String content) {
+		return MessageRequest.builder()
+				.chatId(chatId)
+				.senderId(senderId)
+				.receiverId(receiverId)
+				.type(MessageType.TEXT)
+				.content(content)
+				.build();
+	}
+
+	private static Chat chat(String id, String senderId, String recipientId) {
+		Chat chat = new Chat();
+		chat.setId(id);
+		chat.setSender(user(senderId));
+		chat.setRecipient(user(recipientId));
+		return chat;
+	}
+
+	private static User user(String id) {
+		User user = new User();
+		user.setId(id);
+		return user;
+	}
+}
@@ -0,0 +1,111 @@
+package com.pgs.whatsappclone.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pgs.whatsappclone.chat.ChatMapper;
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.message.Message;
+import com.pgs.whatsappclone.message.MessageMapper;
+import com.pgs.whatsappclone.message.MessageRepository;
+
+/**
+ * Checks the checkpoints returned by {@link SyncService}: they never skip past the overlap
+ * window, whichever page they end.
+ */
+class SyncServiceTests {
+
+	private static final Duration OVERLAP = Duration.ofSeconds(30);
+	private static final String USER_ID = "user";
+
+	private final ChatRepository chatRepository = mock(ChatRepository.class);
+	private final MessageRepository messageRepository = mock(MessageRepository.class);
+	private final SyncService syncService = new SyncService(this.chatRepository, this.messageRepository,
+			mock(ChatMapper.class), mock(MessageMapper.class));
+	private final Authentication authentication = new TestingAuthenticationToken(USER_ID, null);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(this.syncService, "overlap", OVERLAP);
+		when(this.chatRepository.findChatsChangedSince(anyString(), any())).thenReturn(List.of());
+		when(this.messageRepository.findReceivedMessagesChangedSince(anyString(), any(), anyLong(), any()))
+				.thenReturn(List.of());
+	}
+
+	@Test
+	void pageOfOldChangesEndsAtItsLastMessage() {
+		final LocalDateTime changed = LocalDateTime.now().minusDays(1);
+		this.sent(changed, 3);
+
+		SyncResponse response = this.syncService.getChanges(null, 2, this.authentication);
+
+		assertThat(response.isHasMore()).isTrue();
+		SyncCheckpoint next = SyncCheckpoint.decode(response.getCheckpoint());
+		assertThat(next.getSince()).isEqualTo(changed);
+		assertThat(next.getMessageId()).isEqualTo(2L);
+	}
+
+	@Test
+	void pageOfRecentChangesEndsBeforeTheOverlap() {
+		final LocalDateTime startedBefore = LocalDateTime.now();
+		this.sent(startedBefore.minusSeconds(5), 3);
+
+		SyncResponse response = this.syncService.getChanges(null, 2, this.authentication);
+
+		assertThat(response.isHasMore()).isTrue();
+		SyncCheckpoint next = SyncCheckpoint.decode(response.getCheckpoint());
+		assertThat(next.getSince()).isBetween(startedBefore.minus(OVERLAP), LocalDateTime.now().minus(OVERLAP));
+		assertThat(next.getMessageId()).isZero();
+	}
+
+	@Test
+	void lastPageEndsBeforeTheOverlap() {
+		final LocalDateTime startedBefore = LocalDateTime.now();
+		this.sent(startedBefore.minusDays(1), 1);
+
+		SyncResponse response = this.syncService.getChanges(null, 2, this.authentication);
+
+		assertThat(response.isHasMore()).isFalse();
+		SyncCheckpoint next = SyncCheckpoint.decode(response.getCheckpoint());
+		assertThat(next.getSince()).isBetween(startedBefore.minus(OVERLAP), LocalDateTime.now().minus(OVERLAP));
+	}
+
+	@Test
+	void checkpointNeverMovesBack() {
+		final SyncCheckpoint from = new SyncCheckpoint(LocalDateTime.now().plusMinutes(1), 7L);
+		this.sent(from.getSince().plusSeconds(1), 3);
+
+		SyncResponse response = this.syncService.getChanges(from.encode(), 2, this.authentication);
+
+		SyncCheckpoint next = SyncCheckpoint.decode(response.getCheckpoint());
+		assertThat(next.getSince()).isEqualTo(from.getSince());
+		assertThat(next.getMessageId()).isEqualTo(7L);
+	}
+
+	// Messages 1..count sent by the user, all changed at the same time
+	private void sent(LocalDateTime changed, int count) {
+		List<Message> messages = LongStream.rangeClosed(1, count).mapToObj(id -> {
+			Message message = new Message();
+			message.setId(id);
+			message.setCreatedDate(changed);
+			return message;
+		}).toList();
+		when(this.messageRepository.findSentMessagesChangedSince(anyString(), any(), anyLong(), any()))
+				.thenReturn(messages);
+	}
+}
@@ -0,0 +1,208 @@
+package com.pgs.whatsappclone.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.pgs.whatsappclone.chat.ChatRepository;
+import com.pgs.whatsappclone.file.FileService;
+import com.pgs.whatsappclone.message.MessageService;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Checks the chunked upload protocol of {@link UploadSessionService}: chunks in any order,
+ * idempotent resends, length checks, completion and garbage collection of stale sessions.
+ * The session table is mocked, chunks are written to a temporary staging folder.
+ */
+class UploadSessionServiceTests {
+
+	private static final String SESSION_ID = "session";
+	private static final String USER_ID = "user";
+	private static final String CHAT_ID = "chat";
+	// Three chunks of 4, 4 and 2 bytes
+	private static final String CONTENT = "0123456789";
+	private static final String MIME_TYPE = "text/plain";
+
+	@TempDir
+	Path folder;
+
+	private final UploadSessionRepository uploadSessionRepository = mock(UploadSessionRepository.class);
+	private final FileService fileService = mock(FileService.class);
+	private final MessageService messageService = mock(MessageService.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	private final UploadSessionService uploadSessionService = new UploadSessionService(this.uploadSessionRepository,
+			mock(ChatRepository.class), this.fileService, this.messageService, this.transactionManager);
+	private final Authentication authentication = new TestingAuthenticationToken(USER_ID, null);
+
+	private final UploadSession session = new UploadSession();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		ReflectionTestUtils.setField(this.uploadSessionService, "ttl", Duration.ofHours(24));
+		when(this.transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		when(this.fileService.stagingFolder()).thenReturn(this.folder);
+
+		this.session.setId(SESSION_ID);
+		this.session.setChatId(CHAT_ID);
+		this.session.setUserId(USER_ID);
+		this.session.setMimeType(MIME_TYPE);
+		this.session.setSize(CONTENT.length());
+		this.session.setChunkSize(4);
+		this.session.setChunkCount(3);
+		this.session.setExpiresAt(LocalDateTime.now().plusHours(1));
+		when(this.uploadSessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(this.session));
+		// The chunk table, as ADD_CHUNK and COUNT_CHUNKS see it
+		doAnswer(invocation -> this.session.getReceivedChunks().add(invocation.getArgument(1)))
+				.when(this.uploadSessionRepository).addChunk(eq(SESSION_ID), anyInt());
+		when(this.uploadSessionRepository.countChunks(SESSION_ID))
+				.thenAnswer(invocation -> (long) this.session.getReceivedChunks().size());
+		when(this.uploadSessionRepository.extendExpiration(eq(SESSION_ID), any())).thenReturn(1);
+	}
+
+	@Test
+	void chunksInAnyOrderAssembleTheFile() throws IOException {
+		this.write(2, "89");
+		this.write(0, "0123");
+		this.write(1, "4567");
+
+		this.uploadSessionService.completeSession(SESSION_ID, this.authentication);
+
+		verify(this.messageService).uploadMediaMessage(CHAT_ID, this.stagingFile(), MIME_TYPE, this.authentication);
+		verify(this.uploadSessionRepository).delete(this.session);
+		assertThat(Files.readString(this.stagingFile())).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void resentChunkIsNotWrittenAgain() throws IOException {
+		this.write(0, "0123");
+		this.write(0, "abcd");
+
+		verify(this.uploadSessionRepository).addChunk(SESSION_ID, 0);
+		assertThat(Files.readString(this.stagingFile())).isEqualTo("0123");
+	}
+
+	@Test
+	void shortChunkIsRejectedAndNotWritten() throws IOException {
+		assertThatThrownBy(() -> this.write(1, "45")).isInstanceOf(IllegalArgumentException.class);
+
+		verify(this.uploadSessionRepository, never()).addChunk(anyString(), anyInt());
+		// Neither in the staging file nor left behind in a chunk file
+		assertThat(this.folder).isEmptyDirectory();
+	}
+
+	@Test
+	void longChunkIsRejectedAndNotWritten() {
+		assertThatThrownBy(() -> this.write(2, "8901")).isInstanceOf(IllegalArgumentException.class);
+
+		verify(this.uploadSessionRepository, never()).addChunk(anyString(), anyInt());
+		assertThat(this.folder).isEmptyDirectory();
+	}
+
+	@Test
+	void cutOffRetryKeepsTheStoredChunk() throws IOException {
+		this.write(0, "0123");
+		this.write(1, "4567");
+		this.session.getReceivedChunks().remove(1);
+
+		// Retry of a chunk whose recording was lost, cut off before its end
+		assertThatThrownBy(() -> this.write(1, "ab")).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(Files.readString(this.stagingFile())).isEqualTo("01234567");
+	}
+
+	@Test
+	void chunkIndexOutOfRangeIsRejected() {
+		assertThatThrownBy(() -> this.write(3, "")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> this.write(-1, "")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void chunkOfAnotherUserIsDenied() {
+		Authentication other = new TestingAuthenticationToken("other", null);
+
+		assertThatThrownBy(() -> this.uploadSessionService.writeChunk(SESSION_ID, 0, stream("0123"), other))
+				.isInstanceOf(AccessDeniedException.class);
+	}
+
+	@Test
+	void chunkOfSessionClosedWhileStreamingIsDiscarded() {
+		when(this.uploadSessionRepository.extendExpiration(eq(SESSION_ID), any())).thenReturn(0);
+
+		assertThatThrownBy(() -> this.write(0, "0123")).isInstanceOf(EntityNotFoundException.class);
+
+		verify(this.uploadSessionRepository, never()).addChunk(anyString(), anyInt());
+		assertThat(this.folder).isEmptyDirectory();
+	}
+
+	@Test
+	void completionWithMissingChunksIsRejected() throws IOException {
+		this.write(0, "0123");
+		this.write(2, "89");
+
+		assertThatThrownBy(() -> this.uploadSessionService.completeSession(SESSION_ID, this.authentication))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("missing 1 chunks");
+
+		verify(this.messageService, never()).uploadMediaMessage(anyString(), any(Path.class), any(), any());
+		verify(this.uploadSessionRepository, never()).delete(any());
+	}
+
+	@Test
+	void expiredSessionIsNotFound() {
+		this.session.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+
+		assertThatThrownBy(() -> this.write(0, "0123")).isInstanceOf(EntityNotFoundException.class);
+	}
+
+	@Test
+	void expiredSessionsAreDeletedWithTheirStagingFile() throws IOException {
+		this.write(0, "0123");
+		when(this.uploadSessionRepository.findExpiredSessions(any())).thenReturn(List.of(this.session));
+
+		this.uploadSessionService.deleteExpiredSessions();
+
+		verify(this.uploadSessionRepository).delete(this.session);
+		assertThat(this.folder).isEmptyDirectory();
+	}
+
+	private void write(int chunkIndex, String content) {
+		this.uploadSessionService.writeChunk(SESSION_ID, chunkIndex, stream(content), this.authentication);
+	}
+
+	private Path stagingFile() {
+		return this.folder.resolve("session-" + SESSION_ID + ".part");
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+	}
+}